@@ -0,0 +1,141 @@
+package com.example.benchmarks;
+
+import cn.hutool.json.JSONObject;
+import com.example.benchmarks.support.StubWebSocketSession;
+import com.example.push.config.PushProperties;
+import com.example.push.handler.BaseWebSocketHandler;
+import com.example.push.ws.FrameLimiter;
+import com.example.push.ws.HeartbeatMonitor;
+import com.example.push.ws.PushExecutors;
+import com.example.push.ws.PushMetrics;
+import com.example.push.ws.WebSocketFactory;
+import com.example.push.ws.impl.CborFrameSupport;
+import com.example.push.ws.impl.JacksonFrameCodecImpl;
+import com.example.push.ws.impl.LocalWebSocketSessionStoreServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link WebSocketFactory#process(org.springframework.web.socket.WebSocketSession, TextMessage)} 请求分发
+ * 包含限流、解析、路由和调用 handler, handler 本身不做任何事;
+ * 每 10 个 handler 中 1 个为通配符路由, 通配符主题需要逐个匹配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({"10", "100"})
+    private int handlers;
+
+    private WebSocketFactory factory;
+
+    private LocalWebSocketSessionStoreServiceImpl store;
+
+    private StubWebSocketSession session;
+
+    private TextMessage sub;
+
+    private TextMessage wildcardSub;
+
+    private TextMessage unknownSub;
+
+    private TextMessage ping;
+
+    @Setup
+    public void setup() {
+        PushProperties properties = new PushProperties();
+        //不触发限流, 但保留令牌桶的开销
+        properties.getLimit().setSessionRate(Double.MAX_VALUE);
+        properties.getLimit().setSessionBurst(Long.MAX_VALUE);
+        properties.getLimit().setMaxTopics(0);
+        JacksonFrameCodecImpl frameCodec = new JacksonFrameCodecImpl(new CborFrameSupport(properties));
+        PushMetrics metrics = new PushMetrics(new SimpleMeterRegistry());
+        store = new LocalWebSocketSessionStoreServiceImpl(properties, frameCodec,
+                new HeartbeatMonitor(properties), new PushExecutors(properties), metrics);
+        Map<String, BaseWebSocketHandler> routes = new LinkedHashMap<>();
+        String lastExact = null;
+        String lastWildcard = null;
+        for (int i = 0; i < handlers; i++) {
+            String key = i % 10 == 0 ? "kline" + i + ".*.1min" : "market.h" + i + ".depth";
+            if (i % 10 == 0) {
+                lastWildcard = "kline" + i + ".btc.1min";
+            } else {
+                lastExact = key;
+            }
+            routes.put(key, new NoopHandler());
+        }
+        factory = new WebSocketFactory(routes, frameCodec, store, new FrameLimiter(properties, null), metrics);
+        factory.init();
+        session = new StubWebSocketSession("bench", new AtomicLong());
+        store.register(session);
+        JSONObject data = new JSONObject().set("relationId", 3).set("pageSize", 14).set("accuracy", "8");
+        sub = new TextMessage(new JSONObject().set("sub", lastExact).set("data", data).toString());
+        wildcardSub = new TextMessage(new JSONObject().set("sub", lastWildcard).set("data", data).toString());
+        unknownSub = new TextMessage(new JSONObject().set("sub", "unknown.topic").toString());
+        ping = new TextMessage("{\"ping\":1664000000000}");
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.destroy();
+    }
+
+    @Benchmark
+    public void exact() {
+        factory.process(session, sub);
+    }
+
+    @Benchmark
+    public void wildcard() {
+        factory.process(session, wildcardSub);
+    }
+
+    @Benchmark
+    public void unknown() {
+        factory.process(session, unknownSub);
+    }
+
+    /**
+     * 回复 pong, 包含编码和进入出站队列
+     */
+    @Benchmark
+    public void ping() {
+        factory.process(session, ping);
+    }
+
+    private static class NoopHandler implements BaseWebSocketHandler {
+
+        @Override
+        public void connect(String sessionId, JSONObject json) {
+        }
+
+        @Override
+        public void disconnect(String sessionId) {
+        }
+
+        @Override
+        public void task() {
+        }
+    }
+}
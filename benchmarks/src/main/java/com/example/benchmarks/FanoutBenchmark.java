@@ -0,0 +1,94 @@
+package com.example.benchmarks;
+
+import cn.hutool.json.JSONObject;
+import com.example.benchmarks.support.Payloads;
+import com.example.benchmarks.support.StubWebSocketSession;
+import com.example.push.config.PushProperties;
+import com.example.push.ws.FrameCodec;
+import com.example.push.ws.HeartbeatMonitor;
+import com.example.push.ws.PushExecutors;
+import com.example.push.ws.PushMessage;
+import com.example.push.ws.PushMetrics;
+import com.example.push.ws.Topic;
+import com.example.push.ws.TopicGroup;
+import com.example.push.ws.impl.CborFrameSupport;
+import com.example.push.ws.impl.JacksonFrameCodecImpl;
+import com.example.push.ws.impl.LocalWebSocketSessionStoreServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一条推送数据发给同一主题下的所有连接, 从进入出站队列到发送线程全部写出
+ * 连接为 {@link StubWebSocketSession}, 不包含网络开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FanoutBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int sessions;
+
+    private LocalWebSocketSessionStoreServiceImpl store;
+
+    private FrameCodec frameCodec;
+
+    private PushMetrics metrics;
+
+    private TopicGroup group;
+
+    private JSONObject payload;
+
+    private final AtomicLong sent = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        PushProperties properties = new PushProperties();
+        frameCodec = new JacksonFrameCodecImpl(new CborFrameSupport(properties));
+        metrics = new PushMetrics(new SimpleMeterRegistry());
+        store = new LocalWebSocketSessionStoreServiceImpl(properties, frameCodec,
+                new HeartbeatMonitor(properties), new PushExecutors(properties), metrics);
+        payload = Payloads.depth(20);
+        group = new TopicGroup(Topic.of("market.btc.depth", new JSONObject()));
+        for (int i = 0; i < sessions; i++) {
+            StubWebSocketSession session = new StubWebSocketSession("s" + i, sent);
+            store.register(session);
+            group.getSessionIds().add(session.getId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.destroy();
+    }
+
+    /**
+     * 每次都是新数据, 包含一次序列化; 不合并, 等待所有连接写出
+     */
+    @Benchmark
+    public long fanout() {
+        long target = sent.get() + sessions;
+        store.sendMessage(group, new PushMessage(payload, frameCodec, metrics, null));
+        while (sent.get() < target) {
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.benchmarks;
+
+import cn.hutool.json.JSONObject;
+import com.example.benchmarks.support.Payloads;
+import com.example.push.config.PushProperties;
+import com.example.push.ws.Frame;
+import com.example.push.ws.FrameCodec;
+import com.example.push.ws.PayloadFormat;
+import com.example.push.ws.impl.CborFrameSupport;
+import com.example.push.ws.impl.HutoolFrameCodecImpl;
+import com.example.push.ws.impl.JacksonFrameCodecImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 帧编解码: Hutool 构建 JSON 树 vs Jackson 流式读写
+ * 编码为推送数据的序列化, 解码为客户端订阅请求的解析
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameCodecBenchmark {
+
+    @Param({"hutool", "jackson"})
+    private String codec;
+
+    @Param({"JSON", "CBOR"})
+    private PayloadFormat format;
+
+    /**
+     * 深度档位数
+     */
+    @Param({"20"})
+    private int levels;
+
+    private FrameCodec frameCodec;
+
+    private JSONObject payload;
+
+    private String subText;
+
+    private byte[] subBytes;
+
+    @Setup
+    public void setup() {
+        CborFrameSupport cborFrameSupport = new CborFrameSupport(new PushProperties());
+        frameCodec = "hutool".equals(codec) ? new HutoolFrameCodecImpl(cborFrameSupport) : new JacksonFrameCodecImpl(cborFrameSupport);
+        payload = Payloads.depth(levels);
+        subText = Payloads.SUB_FRAME;
+        ByteBuffer buffer = ((BinaryMessage) cborFrameSupport.encode(new JSONObject(subText))).getPayload();
+        subBytes = new byte[buffer.remaining()];
+        buffer.get(subBytes);
+    }
+
+    @Benchmark
+    public WebSocketMessage<?> encode() {
+        return frameCodec.encode(payload, format);
+    }
+
+    @Benchmark
+    public Frame decode() throws Exception {
+        return format == PayloadFormat.CBOR ? frameCodec.decode(subBytes) : frameCodec.decode(subText);
+    }
+}
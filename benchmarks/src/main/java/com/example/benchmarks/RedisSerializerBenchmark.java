@@ -0,0 +1,79 @@
+package com.example.benchmarks;
+
+import com.example.benchmarks.support.Payloads;
+import com.example.common.serializer.KryoRedisSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisUtil value 序列化: Kryo(+LZ4) vs JDK vs JSON
+ * 序列化后的字节数在 setup 时输出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"kryo", "jdk", "json"})
+    private String serializer;
+
+    /**
+     * 对象个数, 1 为单个对象, 其他为 List
+     */
+    @Param({"1", "200"})
+    private int size;
+
+    private RedisSerializer<Object> redisSerializer;
+
+    private Object value;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        switch (serializer) {
+            case "kryo":
+                redisSerializer = new KryoRedisSerializer(1024);
+                break;
+            case "jdk":
+                redisSerializer = new JdkSerializationRedisSerializer();
+                break;
+            default:
+                redisSerializer = new GenericJackson2JsonRedisSerializer();
+                break;
+        }
+        value = size == 1 ? Payloads.orders(1).get(0) : Payloads.orders(size);
+        bytes = redisSerializer.serialize(value);
+        if (!value.equals(redisSerializer.deserialize(bytes))) {
+            throw new IllegalStateException(serializer + " 反序列化结果不一致");
+        }
+        System.out.printf("%n%s size=%d: %d bytes%n", serializer, size, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.benchmarks;
+
+import cn.hutool.core.util.StrUtil;
+import com.example.benchmarks.support.Payloads;
+import com.example.benchmarks.support.RespStubServer;
+import com.example.common.config.RedisConfig;
+import com.example.common.serializer.KryoRedisSerializer;
+import com.example.common.util.RedisUtil;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisUtil 逐个调用 vs 批量(管道/MGET), 每次操作 batch 个 key
+ * 默认连接进程内的 {@link RespStubServer}, 只体现往返次数的差异;
+ * 通过 -Dbench.redis=host:port 指定真实 redis, 注意会写入 bench: 开头的 key
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisUtilBenchmark {
+
+    private static final long TIME = 600;
+
+    @Param({"10", "100"})
+    private int batch;
+
+    private RespStubServer stub;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RedisUtil redisUtil;
+
+    private List<String> keys;
+
+    private Map<String, Object> values;
+
+    @Setup
+    public void setup() throws IOException {
+        String address = System.getProperty("bench.redis");
+        String host = "localhost";
+        int port;
+        if (StrUtil.isBlank(address)) {
+            stub = new RespStubServer();
+            port = stub.getPort();
+        } else {
+            host = StrUtil.subBefore(address, ':', true);
+            port = Integer.parseInt(StrUtil.subAfter(address, ':', true));
+        }
+        //与应用配置的 spring.redis.lettuce.pool 一致, 管道从池中借用连接
+        GenericObjectPoolConfig<?> pool = new GenericObjectPoolConfig<>();
+        pool.setMaxTotal(16);
+        pool.setMaxIdle(8);
+        pool.setMinIdle(2);
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port),
+                LettucePoolingClientConfiguration.builder().poolConfig(pool).build());
+        connectionFactory.afterPropertiesSet();
+        redisUtil = new RedisUtil(new RedisConfig().redisTemplate(connectionFactory, new KryoRedisSerializer(1024)));
+        keys = new ArrayList<>(batch);
+        values = new LinkedHashMap<>(batch * 2);
+        Payloads.Order order = Payloads.orders(1).get(0);
+        for (int i = 0; i < batch; i++) {
+            String key = "bench:order:" + i;
+            keys.add(key);
+            values.put(key, order);
+        }
+        if (!redisUtil.mset(values, TIME)) {
+            throw new IllegalStateException("redis 写入失败");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        redisUtil.del(keys.toArray(new String[0]));
+        connectionFactory.destroy();
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Benchmark
+    public void setPerCall() {
+        values.forEach((key, value) -> redisUtil.set(key, value, TIME));
+    }
+
+    @Benchmark
+    public boolean setPipelined() {
+        return redisUtil.mset(values, TIME);
+    }
+
+    @Benchmark
+    public void getPerCall(Blackhole blackhole) {
+        for (String key : keys) {
+            blackhole.consume(redisUtil.get(key));
+        }
+    }
+
+    @Benchmark
+    public List<Object> mget() {
+        return redisUtil.mget(keys);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.benchmarks;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.json.JSONObject;
+import com.example.push.ws.Topic;
+import com.example.push.ws.TopicGroup;
+import com.example.push.ws.TopicSubscriptionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接存储: hutool TimedCache vs 当前使用的 ConcurrentHashMap(LocalWebSocketSessionStoreServiceImpl) 和 {@link TopicSubscriptionStore}
+ * 一个线程遍历全部连接/主题分组(推送、统计), 同时两个线程不断连接和断开
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionStoreBenchmark {
+
+    private static final long TIMEOUT = 1000L * 60 * 60 * 8;
+
+    /**
+     * 订阅参数的种类数, 即主题分组数
+     */
+    private static final int GROUPS = 100;
+
+    @Param({"1000", "10000", "50000"})
+    private int sessions;
+
+    private String[] keys;
+
+    private Topic[] topics;
+
+    private TimedCache<String, Object> timedCache;
+
+    private Map<String, Object> sessionMap;
+
+    private TopicSubscriptionStore subscriptionStore;
+
+    @Setup
+    public void setup() {
+        keys = new String[sessions];
+        topics = new Topic[GROUPS];
+        for (int i = 0; i < GROUPS; i++) {
+            topics[i] = Topic.of("market.depth", new JSONObject().set("symbol", "s" + i));
+        }
+        timedCache = CacheUtil.newTimedCache(TIMEOUT);
+        sessionMap = new ConcurrentHashMap<>();
+        subscriptionStore = new TopicSubscriptionStore();
+        for (int i = 0; i < sessions; i++) {
+            keys[i] = "session-" + i;
+            timedCache.put(keys[i], keys[i]);
+            sessionMap.put(keys[i], keys[i]);
+            subscriptionStore.subscribe(keys[i], topics[i % GROUPS]);
+        }
+    }
+
+    @Benchmark
+    @Group("timedCache")
+    @GroupThreads(1)
+    public void timedCacheIterate(Blackhole blackhole) {
+        for (Object value : timedCache) {
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    @Group("timedCache")
+    @GroupThreads(2)
+    public void timedCacheMutate() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        timedCache.remove(key);
+        timedCache.put(key, key);
+    }
+
+    @Benchmark
+    @Group("sessionMap")
+    @GroupThreads(1)
+    public void sessionMapIterate(Blackhole blackhole) {
+        for (Object value : sessionMap.values()) {
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    @Group("sessionMap")
+    @GroupThreads(2)
+    public void sessionMapMutate() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        sessionMap.remove(key);
+        sessionMap.put(key, key);
+    }
+
+    @Benchmark
+    @Group("subscriptionStore")
+    @GroupThreads(1)
+    public void subscriptionStoreIterate(Blackhole blackhole) {
+        for (TopicGroup group : subscriptionStore.groups()) {
+            for (String sessionId : group.getSessionIds()) {
+                blackhole.consume(sessionId);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("subscriptionStore")
+    @GroupThreads(2)
+    public void subscriptionStoreMutate() {
+        int i = ThreadLocalRandom.current().nextInt(keys.length);
+        subscriptionStore.unsubscribe(keys[i]);
+        subscriptionStore.subscribe(keys[i], topics[i % GROUPS]);
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.benchmarks.loadtest;
+
+import cn.hutool.json.JSONObject;
+import com.example.push.constant.WsConstants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Recorder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模拟客户端
+ * 所有连接共用一组 Reactor Netty 事件循环线程; 连接数超过本机端口范围时轮流绑定 127.0.0.x 地址
+ */
+@Slf4j
+class LoadClients implements Closeable {
+
+    private static final int MAX_FRAME = 1024 * 1024;
+
+    private static final WebsocketClientSpec SPEC = WebsocketClientSpec.builder().maxFramePayloadLength(MAX_FRAME).build();
+
+    private final LoadTestOptions options;
+
+    private final URI uri;
+
+    private final LoopResources loops;
+
+    /**
+     * 每个本地地址一个客户端配置
+     */
+    private final HttpClient[] httpClients;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Disposable> connections = new ArrayList<>();
+
+    private final List<ProbeState> probes = new ArrayList<>();
+
+    /**
+     * 探针端到端延迟(微秒)
+     */
+    final Recorder latency = new Recorder(3);
+
+    final LongAdder open = new LongAdder();
+
+    final LongAdder failed = new LongAdder();
+
+    /**
+     * 建立后被断开的连接数
+     */
+    final LongAdder closed = new LongAdder();
+
+    final LongAdder messages = new LongAdder();
+
+    final LongAdder bytes = new LongAdder();
+
+    final LongAdder lost = new LongAdder();
+
+    final LongAdder duplicates = new LongAdder();
+
+    /**
+     * @param localAddresses 绑定的本地地址数, 0 不绑定
+     */
+    LoadClients(LoadTestOptions options, URI uri, int localAddresses) {
+        this.options = options;
+        this.uri = uri;
+        this.loops = LoopResources.create("load-client", Math.max(2, Runtime.getRuntime().availableProcessors()), true);
+        HttpClient base = HttpClient.create(ConnectionProvider.newConnection()).runOn(loops);
+        if (localAddresses <= 0) {
+            httpClients = new HttpClient[]{base};
+        } else {
+            httpClients = new HttpClient[localAddresses];
+            for (int i = 0; i < localAddresses; i++) {
+                InetSocketAddress address = new InetSocketAddress("127.0.0." + (i + 1), 0);
+                httpClients[i] = base.bindAddress(() -> address);
+            }
+        }
+    }
+
+    /**
+     * 建立第 index 个连接并订阅
+     */
+    void connect(int index) {
+        List<String> frames = frames(index);
+        ProbeState state = new ProbeState();
+        Disposable connection = httpClients[index % httpClients.length]
+                .websocket(SPEC)
+                .uri(uri)
+                .handle((in, out) -> {
+                    state.open = true;
+                    open.increment();
+                    return out.sendString(Flux.fromIterable(frames)).then()
+                            .then(in.aggregateFrames(MAX_FRAME).receiveFrames().doOnNext(frame -> onFrame(frame, state)).then());
+                })
+                .subscribe(null, e -> onTerminate(state, e), () -> onTerminate(state, null));
+        synchronized (this) {
+            connections.add(connection);
+            probes.add(state);
+        }
+    }
+
+    /**
+     * 已收到的最大探针序号
+     */
+    synchronized long maxSeq() {
+        long max = 0;
+        for (ProbeState state : probes) {
+            max = Math.max(max, state.lastSeq);
+        }
+        return max;
+    }
+
+    /**
+     * 结束时统计末尾未收到的探针, 允许最后一个周期还在发送中
+     */
+    synchronized long tailLost(long finalSeq) {
+        long tail = 0;
+        for (ProbeState state : probes) {
+            if (state.open && state.lastSeq > 0) {
+                tail += Math.max(0, finalSeq - 1 - state.lastSeq);
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * 应收到的探针数
+     */
+    synchronized long probesExpected(long finalSeq) {
+        long expected = 0;
+        for (ProbeState state : probes) {
+            if (state.lastSeq > 0) {
+                expected += Math.max(state.lastSeq, state.open ? finalSeq - 1 : 0) - state.firstSeq + 1;
+            }
+        }
+        return expected;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            connections.forEach(Disposable::dispose);
+        }
+        loops.disposeLater().block();
+    }
+
+    /**
+     * 每个连接都订阅探针; 按比例订阅 test_sub, 参数分布在 groups 个分组; 前 slowTopics 个主题分给各连接订阅 slow_upstream
+     */
+    private List<String> frames(int index) {
+        List<String> frames = new ArrayList<>();
+        frames.add(new JSONObject().set(WsConstants.subType, ProbeHandler.KEY).toString());
+        if (index % 100 < options.getTestSubRatio() * 100) {
+            JSONObject data = new JSONObject()
+                    .set("relationId", index % Math.max(options.getGroups(), 1))
+                    .set("pageSize", 14)
+                    .set("accuracy", "8");
+            frames.add(new JSONObject().set(WsConstants.subType, WsConstants.TEST_SUB).set(WsConstants.data, data).toString());
+        }
+        for (int topic = index; topic < options.getSlowTopics(); topic += options.getClients()) {
+            frames.add(new JSONObject().set(WsConstants.subType, SlowUpstreamHandler.KEY)
+                    .set(WsConstants.data, new JSONObject().set("id", topic)).toString());
+        }
+        return frames;
+    }
+
+    /**
+     * 同一连接的帧在同一个事件循环线程中处理
+     */
+    private void onFrame(WebSocketFrame frame, ProbeState state) {
+        long now = LoadClock.micros();
+        messages.increment();
+        bytes.add(frame.content().readableBytes());
+        if (!(frame instanceof TextWebSocketFrame)) {
+            return;
+        }
+        JsonNode json;
+        try {
+            json = objectMapper.readTree(new ByteBufInputStream(frame.content()));
+        } catch (IOException e) {
+            log.warn("无法解析推送数据", e);
+            return;
+        }
+        if (!json.has("seq") || !json.has("ts")) {
+            return;
+        }
+        latency.recordValue(Math.max(0, now - json.get("ts").asLong()));
+        long seq = json.get("seq").asLong();
+        if (state.lastSeq == 0) {
+            state.firstSeq = seq;
+            state.lastSeq = seq;
+        } else if (seq <= state.lastSeq) {
+            duplicates.increment();
+        } else {
+            lost.add(seq - state.lastSeq - 1);
+            state.lastSeq = seq;
+        }
+    }
+
+    private void onTerminate(ProbeState state, Throwable error) {
+        if (!state.open) {
+            failed.increment();
+            if (failed.sum() <= 10) {
+                log.warn("连接失败: {}", error == null ? "连接关闭" : error.toString());
+            }
+            return;
+        }
+        state.open = false;
+        open.decrement();
+        closed.increment();
+    }
+
+    /**
+     * 单个连接的探针序号
+     */
+    private static class ProbeState {
+
+        private volatile boolean open;
+
+        private volatile long firstSeq;
+
+        private volatile long lastSeq;
+    }
+}
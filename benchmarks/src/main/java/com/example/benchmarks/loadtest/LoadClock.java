@@ -0,0 +1,20 @@
+package com.example.benchmarks.loadtest;
+
+import java.time.Instant;
+
+/**
+ * 服务端和客户端在同一台机器上, 使用同一个墙上时钟计算端到端延迟
+ */
+final class LoadClock {
+
+    private LoadClock() {
+    }
+
+    /**
+     * 当前时间(微秒)
+     */
+    static long micros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.benchmarks.loadtest;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.example.benchmarks.support.RespStubServer;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * push 端到端压测
+ * 在本机启动 {@link LoadTestServer}(关闭 Nacos, redis 使用进程内 RESP 桩), 建立大量 websocket 连接订阅探针和 test_sub,
+ * 按间隔输出连接数、推送速率、端到端延迟、丢失, 以及服务端的堆、GC、线程和 CPU
+ * <p>
+ * 用法见 {@link LoadTestOptions#USAGE}, 例如:
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.loadtest.LoadTest --clients=20000 --ramp=1000
+ * 对比线程模式: 分别以 --execution-mode=platform / virtual 加 --slow-topics=500 运行, 比较 slow_upstream 的周期耗时和延迟
+ */
+@Slf4j
+public class LoadTest implements Closeable {
+
+    private final LoadTestOptions options;
+
+    private RespStubServer redisStub;
+
+    private Process server;
+
+    private File serverLog;
+
+    private ServerProbe probe;
+
+    private LoadClients clients;
+
+    private final Histogram total = new Histogram(3);
+
+    private Histogram interval;
+
+    private long lastMessages;
+
+    private long lastBytes;
+
+    private long lastReport;
+
+    private final long startTime = System.currentTimeMillis();
+
+    public LoadTest(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(LoadTestOptions.USAGE);
+            return;
+        }
+        try (LoadTest test = new LoadTest(LoadTestOptions.parse(args))) {
+            test.run();
+        }
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        URI uri = start();
+        checkLimits(uri);
+        clients = new LoadClients(options, uri, localAddresses(uri));
+        //建立连接
+        print("建立 %d 个连接, 每秒 %d 个, 目标 %s", options.getClients(), options.getRamp(), uri);
+        long rampStart = System.nanoTime();
+        lastReport = System.currentTimeMillis();
+        for (int i = 0; i < options.getClients(); i++) {
+            clients.connect(i);
+            long due = rampStart + TimeUnit.SECONDS.toNanos(i + 1) / options.getRamp();
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            reportIfDue();
+        }
+        //等待连接建立完成
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (clients.open.sum() + clients.failed.sum() < options.getClients() && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+            reportIfDue();
+        }
+        //稳定阶段, 总体延迟只统计这一阶段
+        print("连接建立完成, 持续 %d 秒", options.getDuration());
+        clients.latency.getIntervalHistogram();
+        total.reset();
+        long holdEnd = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(options.getDuration());
+        while (System.currentTimeMillis() < holdEnd) {
+            TimeUnit.MILLISECONDS.sleep(100);
+            if (reportIfDue()) {
+                total.add(interval);
+            }
+        }
+        report();
+        total.add(interval);
+        summary();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (clients != null) {
+            clients.close();
+        }
+        if (server != null) {
+            server.destroy();
+            try {
+                if (!server.waitFor(10, TimeUnit.SECONDS)) {
+                    server.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (redisStub != null) {
+            redisStub.close();
+        }
+    }
+
+    /**
+     * 指定了 url 时直接使用, 否则启动本机服务
+     *
+     * @return websocket 地址
+     */
+    private URI start() throws Exception {
+        if (options.getUrl() != null) {
+            URI uri = URI.create(options.getUrl());
+            probe = new ServerProbe("http://" + uri.getHost() + ":" + uri.getPort(),
+                    "http://" + uri.getHost() + ":" + options.getManagementPort());
+            return uri;
+        }
+        String redisHost = "localhost";
+        int redisPort;
+        if (options.getRedis() == null) {
+            redisStub = new RespStubServer();
+            redisPort = redisStub.getPort();
+        } else {
+            redisHost = StrUtil.subBefore(options.getRedis(), ':', true);
+            redisPort = Integer.parseInt(StrUtil.subAfter(options.getRedis(), ':', true));
+        }
+        int port = freePort();
+        int managementPort = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + options.getServerHeap());
+        if (options.getServerOpts() != null) {
+            command.addAll(Arrays.asList(options.getServerOpts().trim().split("\\s+")));
+        }
+        command.add("-Dserver.port=" + port);
+        command.add("-Dmanagement.server.port=" + managementPort);
+        //连接数不受 Tomcat 默认的 8192 限制
+        command.add("-Dserver.tomcat.max-connections=-1");
+        command.add("-Dserver.tomcat.accept-count=1024");
+        //shade 后的 jar 读不到 Spring Boot 版本号, 关闭 Spring Cloud 的版本检查
+        command.add("-Dspring.cloud.compatibility-verifier.enabled=false");
+        command.add("-Dspring.cloud.nacos.discovery.enabled=false");
+        command.add("-Dspring.cloud.nacos.config.enabled=false");
+        //压测不连接数据库, RESP 桩也不支持 INFO, 健康检查只看服务是否启动
+        command.add("-Dmanagement.health.db.enabled=false");
+        command.add("-Dmanagement.health.redis.enabled=false");
+        command.add("-Dspring.redis.host=" + redisHost);
+        command.add("-Dspring.redis.port=" + redisPort);
+        command.add("-Dpush.scheduler.execution-mode=" + options.getExecutionMode());
+        command.add("-Dloadtest.probe-period=" + options.getProbePeriod());
+        command.add("-Dloadtest.probe-padding=" + options.getProbePadding());
+        command.add("-Dloadtest.slow-millis=" + options.getSlowMillis());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(LoadTestServer.class.getName());
+        serverLog = File.createTempFile("loadtest-server-", ".log");
+        server = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(serverLog).start();
+        print("启动服务端 pid %d, 端口 %d, redis %s:%d, 日志 %s", server.pid(), port, redisHost, redisPort, serverLog);
+        probe = new ServerProbe("http://localhost:" + port, "http://localhost:" + managementPort);
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (!probe.healthy()) {
+            if (!server.isAlive() || System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("服务端启动失败, 日志: " + serverLog + "\n" + tail(serverLog));
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        print("服务端已启动, 耗时 %d 毫秒", System.currentTimeMillis() - startTime);
+        return URI.create("ws://localhost:" + port + "/ws");
+    }
+
+    /**
+     * 文件句柄数不足时提示, 客户端和本机启动的服务端各需要一个连接数的句柄
+     */
+    private void checkLimits(URI uri) {
+        long openFiles = limit("Max open files");
+        if (openFiles > 0 && openFiles < options.getClients() + 1024L) {
+            print("警告: 文件句柄上限 %d 小于连接数, 请先执行 ulimit -n %d", openFiles, options.getClients() + 1024L);
+        }
+        if (!isLoopback(uri) && options.getClients() > ephemeralPorts()) {
+            print("警告: 连接数超过本机端口范围 %d, 远程压测需要多台客户端机器", ephemeralPorts());
+        }
+    }
+
+    /**
+     * 本机压测时按端口范围计算需要绑定的 127.0.0.x 地址数
+     */
+    private int localAddresses(URI uri) {
+        if (!isLoopback(uri)) {
+            return 0;
+        }
+        if (options.getLocalAddresses() > 0) {
+            return options.getLocalAddresses();
+        }
+        //保留一部分端口给其他连接
+        int perAddress = Math.max(ephemeralPorts() * 9 / 10, 1);
+        return Math.max(1, (options.getClients() + perAddress - 1) / perAddress);
+    }
+
+    /**
+     * @return 是否已输出
+     */
+    private boolean reportIfDue() {
+        if (System.currentTimeMillis() - lastReport < TimeUnit.SECONDS.toMillis(options.getReportInterval())) {
+            return false;
+        }
+        report();
+        return true;
+    }
+
+    private void report() {
+        long now = System.currentTimeMillis();
+        double seconds = Math.max(now - lastReport, 1) / 1000D;
+        lastReport = now;
+        long messages = clients.messages.sum();
+        long bytes = clients.bytes.sum();
+        double rate = (messages - lastMessages) / seconds;
+        double throughput = (bytes - lastBytes) / seconds / 1024 / 1024;
+        lastMessages = messages;
+        lastBytes = bytes;
+        interval = clients.latency.getIntervalHistogram();
+        ServerProbe.Snapshot snapshot = probe.snapshot();
+        print("[%4ds] 连接 %d/%d 失败 %d 断开 %d | 消息 %.0f/s %.2fMB/s | 延迟(ms) p50 %.1f p99 %.1f max %.1f | 丢失 %d | "
+                        + "服务端 连接 %.0f 堆 %.0f/%.0fMB GC %.0f次 %.0fms 线程 %.0f CPU %.0f%%",
+                (now - startTime) / 1000, clients.open.sum(), options.getClients(), clients.failed.sum(), clients.closed.sum(),
+                rate, throughput, millis(interval, 50), millis(interval, 99), interval.getMaxValue() / 1000D, clients.lost.sum(),
+                snapshot.sessions, snapshot.heapUsed, snapshot.heapMax, snapshot.gcCount, snapshot.gcMillis, snapshot.threads, snapshot.cpu);
+    }
+
+    private void summary() {
+        long finalSeq = clients.maxSeq();
+        long tail = clients.tailLost(finalSeq);
+        long expected = clients.probesExpected(finalSeq);
+        long lost = clients.lost.sum() + tail;
+        ServerProbe.Snapshot snapshot = probe.snapshot();
+        print("========== 汇总 ==========");
+        print("连接: 成功 %d, 失败 %d, 断开 %d", clients.open.sum(), clients.failed.sum(), clients.closed.sum());
+        print("探针端到端延迟(ms, 稳定阶段 %d 个): p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f",
+                total.getTotalCount(), millis(total, 50), millis(total, 90), millis(total, 99), millis(total, 99.9),
+                total.getMaxValue() / 1000D);
+        print("探针丢失: %d / %d (%.4f%%), 其中结束时未收到 %d, 重复 %d",
+                lost, expected, expected == 0 ? 0 : lost * 100D / expected, tail, clients.duplicates.sum());
+        print("服务端: 丢弃消息 %.0f, 发送失败 %.0f, 堆 %.0f/%.0fMB, GC %.0f次 共 %.0fms, 线程 %.0f 峰值 %.0f",
+                snapshot.dropped, snapshot.sendFailures, snapshot.heapUsed, snapshot.heapMax,
+                snapshot.gcCount, snapshot.gcMillis, snapshot.threads, snapshot.peakThreads);
+        JSONArray handlers = probe.handlers();
+        for (int i = 0; i < handlers.size(); i++) {
+            JSONObject handler = handlers.getJSONObject(i);
+            print("handler %s: 周期 %sms, 执行 %s 次, 超时 %s 次, 耗时 %s/%sms(最近/最大), 延迟 %s/%sms(最近/最大)",
+                    handler.getStr("key"), handler.getStr("period"), handler.getStr("runs"), handler.getStr("overruns"),
+                    handler.getStr("lastDuration"), handler.getStr("maxDuration"),
+                    handler.getStr("lastLag"), handler.getStr("maxLag"));
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000D;
+    }
+
+    private static void print(String format, Object... args) {
+        System.out.println(String.format(format, args));
+    }
+
+    private static boolean isLoopback(URI uri) {
+        String host = uri.getHost();
+        return "localhost".equals(host) || host.startsWith("127.");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * 本机临时端口数量, 读取失败时按 Linux 默认值
+     */
+    private static int ephemeralPorts() {
+        try {
+            String[] range = new String(Files.readAllBytes(Paths.get("/proc/sys/net/ipv4/ip_local_port_range")),
+                    StandardCharsets.US_ASCII).trim().split("\\s+");
+            return Integer.parseInt(range[1]) - Integer.parseInt(range[0]) + 1;
+        } catch (Exception e) {
+            return 28232;
+        }
+    }
+
+    /**
+     * 读取 /proc/self/limits 中的软限制
+     *
+     * @return 读取失败或不限制时返回 -1
+     */
+    private static long limit(String name) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/limits"))) {
+                if (line.startsWith(name)) {
+                    String soft = line.substring(name.length()).trim().split("\\s+")[0];
+                    return "unlimited".equals(soft) ? -1 : Long.parseLong(soft);
+                }
+            }
+        } catch (Exception e) {
+            log.debug("读取 {} 失败", name, e);
+        }
+        return -1;
+    }
+
+    private static String tail(File file) {
+        List<String> lines = FileUtil.readLines(file, StandardCharsets.UTF_8);
+        return String.join("\n", lines.subList(Math.max(0, lines.size() - 30), lines.size()));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.benchmarks.loadtest;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 压测参数, 格式 --name=value
+ */
+@Getter
+public class LoadTestOptions {
+
+    static final String USAGE = String.join("\n",
+            "java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.loadtest.LoadTest [--name=value ...]",
+            "  --clients=1000           连接数",
+            "  --ramp=500               每秒新建连接数",
+            "  --duration=60            全部连接建立后持续的秒数",
+            "  --url=                   已启动的 push 地址, 如 ws://host:8082/ws; 为空时在本机启动 LoadTestServer",
+            "  --management-port=18082  已启动的 push 的 actuator 端口(management.server.port), 只在指定 url 时使用",
+            "  --redis=                 启动服务时使用的 redis host:port, 为空时使用进程内的 RESP 桩",
+            "  --test-sub-ratio=0.5     同时订阅 test_sub 的连接比例",
+            "  --groups=100             test_sub 订阅参数的种类数, 即主题分组数",
+            "  --probe-period=1000      探针推送周期(毫秒)",
+            "  --probe-padding=256      探针数据填充字节数",
+            "  --slow-topics=0          订阅 slow_upstream 的主题数, 每个主题每周期阻塞一次",
+            "  --slow-millis=200        slow_upstream 每次加载阻塞的毫秒数",
+            "  --execution-mode=platform  服务端线程模式 platform / virtual",
+            "  --server-heap=1g         服务端最大堆",
+            "  --server-opts=           服务端其他 JVM 参数, 空格分隔",
+            "  --local-addresses=0      客户端绑定的 127.0.0.x 地址数, 0 按本机端口范围自动计算",
+            "  --report-interval=5      输出间隔(秒)");
+
+    private static final Set<String> NAMES = new HashSet<>(Arrays.asList("clients", "ramp", "duration", "url", "management-port",
+            "redis",
+            "test-sub-ratio", "groups", "probe-period", "probe-padding", "slow-topics", "slow-millis", "execution-mode",
+            "server-heap", "server-opts", "local-addresses", "report-interval"));
+
+    private int clients = 1000;
+
+    private int ramp = 500;
+
+    private int duration = 60;
+
+    private String url;
+
+    private int managementPort = 18082;
+
+    private String redis;
+
+    private double testSubRatio = 0.5;
+
+    private int groups = 100;
+
+    private long probePeriod = 1000;
+
+    private int probePadding = 256;
+
+    private int slowTopics = 0;
+
+    private long slowMillis = 200;
+
+    private String executionMode = "platform";
+
+    private String serverHeap = "1g";
+
+    private String serverOpts;
+
+    private int localAddresses = 0;
+
+    private int reportInterval = 5;
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("参数格式为 --name=value: " + arg);
+            }
+            String name = StrUtil.subBefore(arg.substring(2), '=', false);
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("未知参数: " + arg + "\n" + USAGE);
+            }
+            values.put(name, StrUtil.subAfter(arg, '=', false));
+        }
+        LoadTestOptions options = new LoadTestOptions();
+        options.clients = Integer.parseInt(values.getOrDefault("clients", String.valueOf(options.clients)));
+        options.ramp = Integer.parseInt(values.getOrDefault("ramp", String.valueOf(options.ramp)));
+        options.duration = Integer.parseInt(values.getOrDefault("duration", String.valueOf(options.duration)));
+        options.url = StrUtil.emptyToNull(values.get("url"));
+        options.managementPort = Integer.parseInt(values.getOrDefault("management-port", String.valueOf(options.managementPort)));
+        options.redis = StrUtil.emptyToNull(values.get("redis"));
+        options.testSubRatio = Double.parseDouble(values.getOrDefault("test-sub-ratio", String.valueOf(options.testSubRatio)));
+        options.groups = Integer.parseInt(values.getOrDefault("groups", String.valueOf(options.groups)));
+        options.probePeriod = Long.parseLong(values.getOrDefault("probe-period", String.valueOf(options.probePeriod)));
+        options.probePadding = Integer.parseInt(values.getOrDefault("probe-padding", String.valueOf(options.probePadding)));
+        options.slowTopics = Integer.parseInt(values.getOrDefault("slow-topics", String.valueOf(options.slowTopics)));
+        options.slowMillis = Long.parseLong(values.getOrDefault("slow-millis", String.valueOf(options.slowMillis)));
+        options.executionMode = values.getOrDefault("execution-mode", options.executionMode);
+        options.serverHeap = values.getOrDefault("server-heap", options.serverHeap);
+        options.serverOpts = StrUtil.emptyToNull(values.get("server-opts"));
+        options.localAddresses = Integer.parseInt(values.getOrDefault("local-addresses", String.valueOf(options.localAddresses)));
+        options.reportInterval = Integer.parseInt(values.getOrDefault("report-interval", String.valueOf(options.reportInterval)));
+        return options;
+    }
+}
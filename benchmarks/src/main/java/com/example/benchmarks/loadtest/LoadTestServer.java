@@ -0,0 +1,29 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.push.PushApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 压测用的 push 服务: PushApplication 加上压测 handler, 由 {@link LoadTest} 在单独进程中启动
+ */
+@Configuration
+public class LoadTestServer {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(PushApplication.class, LoadTestServer.class).run(args);
+    }
+
+    @Bean(ProbeHandler.KEY)
+    public ProbeHandler probeHandler(@Value("${loadtest.probe-period:1000}") long period,
+                                     @Value("${loadtest.probe-padding:256}") int padding) {
+        return new ProbeHandler(period, padding);
+    }
+
+    @Bean(SlowUpstreamHandler.KEY)
+    public SlowUpstreamHandler slowUpstreamHandler(@Value("${loadtest.slow-millis:200}") long delay) {
+        return new SlowUpstreamHandler(delay);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.benchmarks.loadtest;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import com.example.push.handler.AbstractTopicWebSocketHandler;
+import com.example.push.ws.Topic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测探针, 每个周期推送 {"seq":周期序号,"ts":生成时间(微秒),"pad":填充}
+ * 客户端根据 ts 计算端到端延迟, 根据 seq 是否连续计算丢失
+ */
+public class ProbeHandler extends AbstractTopicWebSocketHandler {
+
+    public static final String KEY = "load_probe";
+
+    private final AtomicLong seq = new AtomicLong();
+
+    private final long period;
+
+    private final String padding;
+
+    /**
+     * @param period  推送周期(毫秒)
+     * @param padding 填充字节数, 模拟真实数据大小
+     */
+    public ProbeHandler(long period, int padding) {
+        this.period = period;
+        this.padding = StrUtil.repeat('x', padding);
+    }
+
+    @Override
+    public void task() {
+        seq.incrementAndGet();
+        super.task();
+    }
+
+    @Override
+    protected JSON load(Topic topic) {
+        return new JSONObject()
+                .set("seq", seq.get())
+                .set("ts", LoadClock.micros())
+                .set("pad", padding);
+    }
+
+    @Override
+    public long period() {
+        return period;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.benchmarks.loadtest;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * 通过 actuator 和 /stat 读取服务端指标, 接口不可用时返回 NaN
+ */
+class ServerProbe {
+
+    private static final double MB = 1024 * 1024;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    private final String baseUrl;
+
+    private final String managementUrl;
+
+    /**
+     * @param baseUrl       服务端 http 地址, 如 http://localhost:8082
+     * @param managementUrl actuator 所在的管理端口地址, 如 http://localhost:18082
+     */
+    ServerProbe(String baseUrl, String managementUrl) {
+        this.baseUrl = baseUrl;
+        this.managementUrl = managementUrl;
+    }
+
+    boolean healthy() {
+        String body = get(managementUrl + "/actuator/health");
+        return body != null && body.contains("\"UP\"");
+    }
+
+    /**
+     * 单个统计值
+     *
+     * @param statistic VALUE / COUNT / TOTAL_TIME / MAX
+     * @param tag       name:value, 可以为null
+     */
+    double metric(String name, String statistic, String tag) {
+        String body = get(managementUrl + "/actuator/metrics/" + name + (tag == null ? "" : "?tag=" + tag));
+        if (body == null) {
+            return Double.NaN;
+        }
+        JSONArray measurements = JSONUtil.parseObj(body).getJSONArray("measurements");
+        for (int i = 0; measurements != null && i < measurements.size(); i++) {
+            JSONObject measurement = measurements.getJSONObject(i);
+            if (statistic.equals(measurement.getStr("statistic"))) {
+                return measurement.getDouble("value");
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * 各 handler 定时任务统计
+     */
+    JSONArray handlers() {
+        String body = get(baseUrl + "/stat/handlers");
+        return body == null ? new JSONArray() : JSONUtil.parseArray(body);
+    }
+
+    Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.heapUsed = metric("jvm.memory.used", "VALUE", "area:heap") / MB;
+        snapshot.heapMax = metric("jvm.memory.max", "VALUE", "area:heap") / MB;
+        snapshot.gcCount = metric("jvm.gc.pause", "COUNT", null);
+        snapshot.gcMillis = metric("jvm.gc.pause", "TOTAL_TIME", null) * 1000;
+        snapshot.threads = metric("jvm.threads.live", "VALUE", null);
+        snapshot.peakThreads = metric("jvm.threads.peak", "VALUE", null);
+        snapshot.cpu = metric("process.cpu.usage", "VALUE", null) * 100;
+        snapshot.sessions = metric("push.sessions", "VALUE", null);
+        snapshot.dropped = metric("push.send.dropped", "COUNT", null);
+        snapshot.sendFailures = metric("push.send.failures", "COUNT", null);
+        return snapshot;
+    }
+
+    private String get(String url) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5)).build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 ? response.body() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static class Snapshot {
+
+        double heapUsed;
+
+        double heapMax;
+
+        double gcCount;
+
+        double gcMillis;
+
+        double threads;
+
+        double peakThreads;
+
+        double cpu;
+
+        double sessions;
+
+        double dropped;
+
+        double sendFailures;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.benchmarks.loadtest;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import com.example.push.handler.AbstractTopicWebSocketHandler;
+import com.example.push.ws.Topic;
+
+/**
+ * 模拟通过 Feign 调用慢接口加载数据的 handler, 每个主题每个周期阻塞 delay 毫秒
+ * 订阅参数不同的主题越多, 每个周期并发的阻塞调用越多, 用于对比 platform / virtual 线程模式下的周期耗时和延迟
+ */
+public class SlowUpstreamHandler extends AbstractTopicWebSocketHandler {
+
+    public static final String KEY = "slow_upstream";
+
+    private final long delay;
+
+    public SlowUpstreamHandler(long delay) {
+        this.delay = delay;
+    }
+
+    @Override
+    protected JSON load(Topic topic) {
+        ThreadUtil.sleep(delay);
+        return new JSONObject()
+                .set("ts", LoadClock.micros())
+                .set("data", topic.getParam());
+    }
+}
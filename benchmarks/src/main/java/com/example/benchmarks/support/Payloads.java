@@ -0,0 +1,84 @@
+package com.example.benchmarks.support;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 基准测试数据
+ */
+public final class Payloads {
+
+    /**
+     * 客户端订阅请求
+     */
+    public static final String SUB_FRAME = "{\"sub\":[\"market.btc.depth\",\"market.eth.depth\"],"
+            + "\"data\":{\"relationId\":3,\"pageSize\":14,\"accuracy\":\"8\"},\"format\":\"json\"}";
+
+    private Payloads() {
+    }
+
+    /**
+     * 深度推送数据, 买卖各 levels 档
+     */
+    public static JSONObject depth(int levels) {
+        JSONArray bids = new JSONArray();
+        JSONArray asks = new JSONArray();
+        for (int i = 0; i < levels; i++) {
+            bids.add(new JSONArray().set(new BigDecimal("30000.50").subtract(BigDecimal.valueOf(i))).set(new BigDecimal("0.0" + (i + 1))));
+            asks.add(new JSONArray().set(new BigDecimal("30001.50").add(BigDecimal.valueOf(i))).set(new BigDecimal("0.0" + (i + 1))));
+        }
+        return new JSONObject()
+                .set("symbol", "btc_usdt")
+                .set("bids", bids)
+                .set("asks", asks)
+                .set("ts", 1664000000000L);
+    }
+
+    /**
+     * 写入 redis 的业务对象
+     */
+    public static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            order.setId(1000000L + i);
+            order.setUserId(10086L);
+            order.setSymbol("btc_usdt");
+            order.setSide(i % 2 == 0 ? "buy" : "sell");
+            order.setPrice(new BigDecimal("30000.5").add(BigDecimal.valueOf(i)));
+            order.setQuantity(new BigDecimal("0.015"));
+            order.setCreateTime(new Date(1664000000000L + i));
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Order implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long id;
+
+        private Long userId;
+
+        private String symbol;
+
+        private String side;
+
+        private BigDecimal price;
+
+        private BigDecimal quantity;
+
+        private Date createTime;
+    }
+}
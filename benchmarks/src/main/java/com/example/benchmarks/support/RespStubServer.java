@@ -0,0 +1,303 @@
+package com.example.benchmarks.support;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的 RESP2 服务, 代替 redis 对比客户端的往返次数
+ * 只支持字符串相关命令, 不处理过期; 每个连接一个线程, 读完缓冲区中的命令后才刷新输出, 管道中的命令一次写回
+ */
+@Slf4j
+public class RespStubServer implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NIL = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+
+    private final ServerSocket serverSocket;
+
+    private final List<Socket> sockets = new ArrayList<>();
+
+    public RespStubServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "resp-stub-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                synchronized (sockets) {
+                    sockets.add(socket);
+                }
+                Thread worker = new Thread(() -> serve(socket), "resp-stub-" + socket.getPort());
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("resp stub accept 异常", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             InputStream in = new BufferedInputStream(s.getInputStream(), 64 * 1024);
+             OutputStream out = new BufferedOutputStream(s.getOutputStream(), 64 * 1024)) {
+            while (true) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                if (!execute(command, out)) {
+                    out.flush();
+                    return;
+                }
+                //管道中的命令全部处理完再写回
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (SocketException | EOFException e) {
+            //连接关闭
+        } catch (IOException e) {
+            log.warn("resp stub 连接异常", e);
+        }
+    }
+
+    /**
+     * @return false 关闭连接
+     */
+    private boolean execute(List<byte[]> command, OutputStream out) throws IOException {
+        String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "PING":
+                if (command.size() > 1) {
+                    writeBulk(out, command.get(1));
+                } else {
+                    out.write("+PONG\r\n".getBytes(StandardCharsets.US_ASCII));
+                }
+                return true;
+            case "ECHO":
+                writeBulk(out, command.get(1));
+                return true;
+            case "HELLO":
+                //客户端回退到 RESP2
+                writeError(out, "ERR unknown command 'HELLO'");
+                return true;
+            case "SELECT":
+            case "AUTH":
+            case "CLIENT":
+            case "READONLY":
+                out.write(OK);
+                return true;
+            case "QUIT":
+                out.write(OK);
+                return false;
+            case "GET":
+                writeBulk(out, data.get(key(command, 1)));
+                return true;
+            case "SET":
+                set(command, out);
+                return true;
+            case "SETEX":
+            case "PSETEX":
+                data.put(key(command, 1), command.get(3));
+                out.write(OK);
+                return true;
+            case "MGET":
+                writeArrayHeader(out, command.size() - 1);
+                for (int i = 1; i < command.size(); i++) {
+                    writeBulk(out, data.get(key(command, i)));
+                }
+                return true;
+            case "MSET":
+                for (int i = 1; i + 1 < command.size(); i += 2) {
+                    data.put(key(command, i), command.get(i + 1));
+                }
+                out.write(OK);
+                return true;
+            case "DEL":
+            case "UNLINK":
+                int removed = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    if (data.remove(key(command, i)) != null) {
+                        removed++;
+                    }
+                }
+                writeInteger(out, removed);
+                return true;
+            case "EXISTS":
+                int exists = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    if (data.containsKey(key(command, i))) {
+                        exists++;
+                    }
+                }
+                writeInteger(out, exists);
+                return true;
+            case "EXPIRE":
+            case "PEXPIRE":
+                writeInteger(out, data.containsKey(key(command, 1)) ? 1 : 0);
+                return true;
+            case "TTL":
+            case "PTTL":
+                writeInteger(out, data.containsKey(key(command, 1)) ? -1 : -2);
+                return true;
+            default:
+                writeError(out, "ERR unknown command '" + name + "'");
+                return true;
+        }
+    }
+
+    /**
+     * SET key value [EX seconds|PX milliseconds] [NX|XX], 过期参数忽略
+     */
+    private void set(List<byte[]> command, OutputStream out) throws IOException {
+        String key = key(command, 1);
+        boolean nx = false;
+        boolean xx = false;
+        for (int i = 3; i < command.size(); i++) {
+            String option = new String(command.get(i), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+            nx |= "NX".equals(option);
+            xx |= "XX".equals(option);
+        }
+        if ((nx && data.containsKey(key)) || (xx && !data.containsKey(key))) {
+            out.write(NIL);
+            return;
+        }
+        data.put(key, command.get(2));
+        out.write(OK);
+    }
+
+    private static String key(List<byte[]> command, int index) {
+        return new String(command.get(index), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 读取一条命令, 客户端发送的都是 bulk string 数组
+     *
+     * @return 连接关闭时返回null
+     */
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("不支持的请求类型: " + (char) type);
+        }
+        int count = (int) readNumber(in);
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("参数不是 bulk string");
+            }
+            int length = (int) readNumber(in);
+            byte[] arg = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(arg, read, length - read);
+                if (n == -1) {
+                    throw new EOFException();
+                }
+                read += n;
+            }
+            //\r\n
+            in.read();
+            in.read();
+            args.add(arg);
+        }
+        return args;
+    }
+
+    /**
+     * 读取到 \r\n 为止的整数
+     */
+    private static long readNumber(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            if (b == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (b - '0');
+            }
+        }
+        in.read();
+        return negative ? -value : value;
+    }
+
+    private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(NIL);
+            return;
+        }
+        out.write('$');
+        out.write(Integer.toString(value.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(value);
+        out.write(CRLF);
+    }
+
+    private static void writeArrayHeader(OutputStream out, int size) throws IOException {
+        out.write('*');
+        out.write(Integer.toString(size).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeInteger(OutputStream out, long value) throws IOException {
+        out.write(':');
+        out.write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeError(OutputStream out, String message) throws IOException {
+        out.write('-');
+        out.write(message.getBytes(StandardCharsets.UTF_8));
+        out.write(CRLF);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.common.cache;
+
+import com.example.common.config.NearCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * RedisUtil 的本地缓存
+ * 每个 redis key 对应一个条目, 条目中缓存原始值、按类型转换后的对象和 hash 项, 失效时整个条目一起删除;
+ * 读取 redis 期间发生过失效时不写入本地, 避免把旧值放回缓存
+ */
+public class NearCache {
+
+    /**
+     * 条目中原始值的位置, 类型转换后的对象以 Class 为位置, hash 项以项名为位置
+     */
+    private static final Object VALUE = new Object();
+
+    private final Cache<String, Entry> cache;
+
+    private final long defaultTtl;
+
+    /**
+     * 失效消息频道
+     */
+    @Getter
+    private final String channel;
+
+    private final Map<String, Long> prefixes;
+
+    /**
+     * 每次失效加一
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public NearCache(NearCacheProperties properties) {
+        this.defaultTtl = TimeUnit.SECONDS.toNanos(properties.getTtl());
+        this.prefixes = properties.getPrefixes();
+        this.channel = properties.getChannel();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize())
+                .<String, Entry>weigher((key, entry) -> entry.slots.size())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.ttl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 是否缓存该key
+     */
+    public boolean accept(String key) {
+        return ttl(key) > 0;
+    }
+
+    /**
+     * 获取原始值, 本地没有时由 loader 从 redis 读取
+     */
+    public Object get(String key, Supplier<Object> loader) {
+        return load(key, VALUE, loader);
+    }
+
+    /**
+     * 获取转换后的对象, 多次调用返回同一个实例, 调用方不要修改
+     */
+    public <T> T get(String key, Class<T> type, Supplier<T> loader) {
+        return load(key, type, loader);
+    }
+
+    /**
+     * 获取 hash 项
+     */
+    public Object hget(String key, Object item, Supplier<Object> loader) {
+        return load(key, item, loader);
+    }
+
+    /**
+     * 删除本地缓存
+     *
+     * @param keys 为空时删除全部
+     */
+    public void invalidate(Collection<String> keys) {
+        generation.incrementAndGet();
+        if (keys.isEmpty()) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), cache.stats().evictionCount(), cache.estimatedSize());
+    }
+
+    /**
+     * 底层缓存, 只用于注册指标
+     */
+    Cache<String, ?> cache() {
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Object slot, Supplier<T> loader) {
+        Entry entry = cache.getIfPresent(key);
+        Object value = entry == null ? null : entry.slots.get(slot);
+        if (value != null) {
+            hits.increment();
+            return (T) value;
+        }
+        misses.increment();
+        long stamp = generation.get();
+        T loaded = loader.get();
+        if (loaded != null) {
+            cache.asMap().compute(key, (k, current) -> {
+                if (generation.get() != stamp) {
+                    return current;
+                }
+                Entry target = current != null ? current : new Entry(ttl(k));
+                target.slots.put(slot, loaded);
+                return target;
+            });
+        }
+        return loaded;
+    }
+
+    /**
+     * 最长匹配前缀的过期时间(纳秒), 不缓存时返回0
+     */
+    private long ttl(String key) {
+        if (prefixes.isEmpty()) {
+            return defaultTtl;
+        }
+        String matched = null;
+        for (String prefix : prefixes.keySet()) {
+            if (key.startsWith(prefix) && (matched == null || prefix.length() > matched.length())) {
+                matched = prefix;
+            }
+        }
+        if (matched == null) {
+            return 0;
+        }
+        Long seconds = prefixes.get(matched);
+        return seconds != null && seconds > 0 ? TimeUnit.SECONDS.toNanos(seconds) : defaultTtl;
+    }
+
+    private static class Entry {
+
+        private final long ttl;
+
+        private final Map<Object, Object> slots = new ConcurrentHashMap<>(4);
+
+        private Entry(long ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * 命中、未命中、淘汰(容量和过期)次数和当前条目数
+     */
+    @Value
+    public static class Stats {
+
+        long hitCount;
+
+        long missCount;
+
+        long evictionCount;
+
+        long size;
+    }
+}
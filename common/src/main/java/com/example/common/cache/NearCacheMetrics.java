@@ -0,0 +1,36 @@
+package com.example.common.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 本地缓存指标
+ * cache.size / cache.evictions 等按 redis key 统计, 由 {@link CaffeineCacheMetrics} 提供;
+ * near.cache.gets 按读取次数统计命中和未命中, 同一个 key 的原始值、转换后的对象、hash 项分别计数
+ */
+public class NearCacheMetrics implements MeterBinder {
+
+    private static final String NAME = "nearCache";
+
+    private final NearCache nearCache;
+
+    public NearCacheMetrics(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, nearCache.cache(), NAME);
+        FunctionCounter.builder("near.cache.gets", nearCache, cache -> cache.stats().getHitCount())
+                .description("本地缓存命中次数")
+                .tags(Tags.of("cache", NAME, "result", "hit"))
+                .register(registry);
+        FunctionCounter.builder("near.cache.gets", nearCache, cache -> cache.stats().getMissCount())
+                .description("本地缓存未命中次数")
+                .tags(Tags.of("cache", NAME, "result", "miss"))
+                .register(registry);
+    }
+}
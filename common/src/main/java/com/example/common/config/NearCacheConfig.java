@@ -0,0 +1,66 @@
+package com.example.common.config;
+
+import com.example.common.cache.NearCache;
+import com.example.common.cache.NearCacheMetrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Collection;
+
+/**
+ * 开启本地缓存时订阅失效频道, 其他节点通过 RedisUtil 写入后删除本地缓存
+ * 失效消息在订阅断开期间会丢失, 此时由本地过期时间兜底
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "common.near-cache", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(NearCacheProperties.class)
+public class NearCacheConfig {
+
+    @Bean
+    public NearCache nearCache(NearCacheProperties properties) {
+        return new NearCache(properties);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer nearCacheListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                    RedisTemplate<String, Object> redisTemplate,
+                                                                    NearCache nearCache,
+                                                                    NearCacheProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            Object keys = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (keys instanceof Collection) {
+                @SuppressWarnings("unchecked")
+                Collection<String> collection = (Collection<String>) keys;
+                nearCache.invalidate(collection);
+            } else {
+                log.warn("无法识别的缓存失效消息: {}", keys);
+            }
+        }, new ChannelTopic(properties.getChannel()));
+        return container;
+    }
+
+    /**
+     * 引入 actuator 的服务注册本地缓存指标
+     */
+    @Configuration
+    @ConditionalOnClass(MeterBinder.class)
+    static class NearCacheMetricsConfig {
+
+        @Bean
+        public NearCacheMetrics nearCacheMetrics(NearCache nearCache) {
+            return new NearCacheMetrics(nearCache);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RedisUtil 本地缓存配置
+ */
+@Data
+@ConfigurationProperties(prefix = "common.near-cache")
+public class NearCacheProperties {
+
+    /**
+     * 是否开启本地缓存, 开启后 get/hget 先读本地, 通过 RedisUtil 写入时广播失效消息
+     */
+    private boolean enabled = false;
+
+    /**
+     * 最多缓存的值个数, 超出后按 W-TinyLFU 淘汰
+     */
+    private long maximumSize = 10000;
+
+    /**
+     * 默认本地过期时间(秒), 失效消息丢失时最多读到这么久的旧值
+     */
+    private long ttl = 60;
+
+    /**
+     * 只缓存这些前缀的key, value 为本地过期时间(秒), 小于等于0时使用 ttl; 为空时缓存所有key
+     * 前缀含 ':' 时需写成 "[member:]": 30
+     */
+    private Map<String, Long> prefixes = new LinkedHashMap<>();
+
+    /**
+     * 失效消息频道
+     */
+    private String channel = "cache:invalidate";
+}
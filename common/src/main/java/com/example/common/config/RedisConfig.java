@@ -0,0 +1,48 @@
+package com.example.common.config;
+
+import com.example.common.serializer.KryoRedisSerializer;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * RedisUtil 使用的 RedisTemplate, key 为字符串, value 默认使用 kryo 序列化
+ * 只通过 spring.factories 注册为自动配置, 各服务不扫描 com.example.common.config, 没有扫描 common 包的模块引入后也会生效
+ */
+@Configuration
+@AutoConfigureBefore(RedisAutoConfiguration.class)
+@EnableConfigurationProperties(RedisSerializerProperties.class)
+public class RedisConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(name = "redisValueSerializer")
+    public RedisSerializer<Object> redisValueSerializer(RedisSerializerProperties properties) {
+        if ("jdk".equalsIgnoreCase(properties.getSerializer())) {
+            return new JdkSerializationRedisSerializer();
+        }
+        return new KryoRedisSerializer(properties.getCompressThreshold());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "redisTemplate")
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       RedisSerializer<Object> redisValueSerializer) {
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        StringRedisSerializer keySerializer = new StringRedisSerializer();
+        redisTemplate.setKeySerializer(keySerializer);
+        redisTemplate.setHashKeySerializer(keySerializer);
+        redisTemplate.setValueSerializer(redisValueSerializer);
+        redisTemplate.setHashValueSerializer(redisValueSerializer);
+        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * RedisUtil 使用的 value 序列化配置
+ */
+@Data
+@ConfigurationProperties(prefix = "common.redis")
+public class RedisSerializerProperties {
+
+    /**
+     * value 序列化: kryo / jdk
+     * kryo 可以读取 jdk 写入的旧数据, 但未升级的节点读不了 kryo 写入的数据, 滚动发布期间可先用 jdk
+     */
+    private String serializer = "kryo";
+
+    /**
+     * kryo 序列化结果超过该字节数时使用 LZ4 压缩, 小于等于0不压缩
+     */
+    private int compressThreshold = 1024;
+}
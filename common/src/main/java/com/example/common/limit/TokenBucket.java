@@ -0,0 +1,64 @@
+package com.example.common.limit;
+
+/**
+ * 本地令牌桶, 线程安全
+ * 单节点内的限流直接使用, 也作为 {@link TokenBucketLimiter} 的本地预检
+ */
+public class TokenBucket {
+
+    /**
+     * 每秒生成的令牌数
+     */
+    private final double rate;
+
+    /**
+     * 桶容量, 即允许的突发数
+     */
+    private final long capacity;
+
+    private double tokens;
+
+    private long lastRefill = System.nanoTime();
+
+    public TokenBucket(double rate, long capacity) {
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+
+    /**
+     * 取令牌
+     *
+     * @return false 令牌不足, 不扣减
+     */
+    public synchronized boolean tryAcquire(long permits) {
+        refill();
+        if (tokens < permits) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+
+    /**
+     * 是否有足够的令牌, 不扣减
+     */
+    public synchronized boolean available(long permits) {
+        refill();
+        return tokens >= permits;
+    }
+
+    /**
+     * 扣减令牌, 不足时扣到0
+     */
+    public synchronized void consume(long permits) {
+        refill();
+        tokens = Math.max(0, tokens - permits);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / 1_000_000_000D);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.common.limit;
+
+import com.example.common.util.RedisUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 redis 的分布式令牌桶限流, 多个节点共用同一个桶
+ * 每个节点为每个key维护一个相同参数的本地桶, 只记录本节点通过的请求, 本地桶的令牌数不会少于 redis 中的桶,
+ * 本地桶不足时直接拒绝, 不访问 redis; 被刷请求时大部分在本地拒绝
+ * 高频调用可以使用 {@link #tryAcquire(String, double, long, long, long)} 一次从 redis 预取多个令牌, 在本地发放
+ * redis 不可用时放行
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenBucketLimiter {
+
+    private static final String PREFIX = "limit:";
+
+    /**
+     * KEYS[1]: 桶, ARGV: 每秒令牌数, 容量, 本次令牌数; 返回 {是否通过, 剩余令牌数}
+     * 使用 redis 时间, 各节点时钟不一致时也不影响
+     */
+    private static final RedisScript<List> TOKEN_BUCKET = RedisScript.of(
+            "local rate = tonumber(ARGV[1]) local capacity = tonumber(ARGV[2]) local permits = tonumber(ARGV[3]) " +
+            "local t = redis.call('TIME') local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(bucket[1]) or capacity local ts = tonumber(bucket[2]) or now " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000) " +
+            "local allowed = 0 if tokens >= permits then tokens = tokens - permits allowed = 1 end " +
+            "redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', now) " +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000) " +
+            "return {allowed, math.floor(tokens)}", List.class);
+
+    /**
+     * KEYS[1]: 桶, ARGV: 每秒令牌数, 容量, 最多预取的令牌数; 返回 {预取到的令牌数, 剩余令牌数}
+     * 令牌不足 ARGV[3] 时取走现有的整数个令牌, 一个也没有时返回 0
+     */
+    private static final RedisScript<List> TOKEN_LEASE = RedisScript.of(
+            "local rate = tonumber(ARGV[1]) local capacity = tonumber(ARGV[2]) local permits = tonumber(ARGV[3]) " +
+            "local t = redis.call('TIME') local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(bucket[1]) or capacity local ts = tonumber(bucket[2]) or now " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000) " +
+            "local granted = math.min(permits, math.floor(tokens)) tokens = tokens - granted " +
+            "redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', now) " +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000) " +
+            "return {granted, math.floor(tokens)}", List.class);
+
+    private final RedisUtil redisUtil;
+
+    /**
+     * 本地预检桶, 长时间未使用的key自动清理
+     */
+    private final Cache<String, TokenBucket> local = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .maximumSize(100_000)
+            .build();
+
+    /**
+     * 从 redis 预取、还未发放的令牌
+     */
+    private final Cache<String, Lease> leases = Caffeine.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .maximumSize(100_000)
+            .build();
+
+    /**
+     * 取一个令牌
+     *
+     * @param key      限流对象, 如用户、ip
+     * @param rate     每秒令牌数
+     * @param capacity 桶容量, 即允许的突发数
+     * @return false 被限流
+     */
+    public boolean tryAcquire(String key, double rate, long capacity) {
+        return acquire(key, rate, capacity, 1).isAllowed();
+    }
+
+    /**
+     * 取令牌
+     *
+     * @param permits 本次需要的令牌数
+     * @return 是否通过和剩余令牌数, 本地拒绝和 redis 不可用时剩余令牌数为 -1
+     */
+    @SuppressWarnings("unchecked")
+    public Result acquire(String key, double rate, long capacity, long permits) {
+        TokenBucket bucket = local.get(key, k -> new TokenBucket(rate, capacity));
+        if (!bucket.available(permits)) {
+            return new Result(false, -1);
+        }
+        List<Long> result;
+        try {
+            result = redisUtil.eval(TOKEN_BUCKET, Collections.singletonList(PREFIX + key), rate, capacity, permits);
+        } catch (Exception e) {
+            log.error("redis 限流失败, 放行 key:{}", key, e);
+            return new Result(true, -1);
+        }
+        boolean allowed = result != null && result.get(0) == 1L;
+        if (allowed) {
+            bucket.consume(permits);
+        }
+        return new Result(allowed, result == null ? -1 : result.get(1));
+    }
+
+    /**
+     * 取一个令牌, 优先使用本节点预取的令牌; 用完或过期后再从 redis 预取最多 lease 个, 每 lease 次调用约一次往返
+     * 预取的令牌已在 redis 中扣减, 所有节点合计不会超过限额; 过期未用完的令牌作废, 不归还
+     *
+     * @param lease    每次预取的令牌数, 小于等于1时每次都访问 redis
+     * @param leaseTtl 预取的令牌有效期(毫秒), 越短各节点间越公平
+     * @return false 被限流
+     */
+    @SuppressWarnings("unchecked")
+    public boolean tryAcquire(String key, double rate, long capacity, long lease, long leaseTtl) {
+        if (lease <= 1) {
+            return tryAcquire(key, rate, capacity);
+        }
+        Lease current = leases.get(key, k -> new Lease());
+        synchronized (current) {
+            long now = System.currentTimeMillis();
+            if (current.remaining > 0 && now < current.expireAt) {
+                current.remaining--;
+                return true;
+            }
+            TokenBucket bucket = local.get(key, k -> new TokenBucket(rate, capacity));
+            if (!bucket.available(1)) {
+                return false;
+            }
+            List<Long> result;
+            try {
+                result = redisUtil.eval(TOKEN_LEASE, Collections.singletonList(PREFIX + key), rate, capacity,
+                        Math.min(lease, capacity));
+            } catch (Exception e) {
+                log.error("redis 限流失败, 放行 key:{}", key, e);
+                return true;
+            }
+            long granted = result == null ? 0 : result.get(0);
+            if (granted <= 0) {
+                return false;
+            }
+            bucket.consume(granted);
+            current.remaining = granted - 1;
+            current.expireAt = now + leaseTtl;
+            return true;
+        }
+    }
+
+    private static class Lease {
+
+        private long remaining;
+
+        private long expireAt;
+    }
+
+    @Value
+    public static class Result {
+
+        boolean allowed;
+
+        long remaining;
+    }
+}
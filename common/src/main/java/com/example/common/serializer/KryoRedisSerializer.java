@@ -0,0 +1,203 @@
+package com.example.common.serializer;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Kryo 序列化, 超过阈值的结果使用 LZ4 压缩
+ * 格式: 首字节 1 表示 Kryo, 2 表示 LZ4 压缩的 Kryo, 之后 4 字节为压缩前长度;
+ * 以 0xACED 开头的是 JDK 序列化, 兼容切换前写入的数据, Kryo 无法序列化的对象也退回 JDK 序列化
+ */
+@Slf4j
+public class KryoRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte KRYO = 1;
+
+    private static final byte KRYO_LZ4 = 2;
+
+    private static final byte JDK_MAGIC = (byte) 0xAC;
+
+    private static final int HEADER = 5;
+
+    /**
+     * 缓冲区超过该大小时不再复用, 避免偶尔的大对象长期占用内存
+     */
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final JavaSerializer JAVA_SERIALIZER = new JavaSerializer();
+
+    private final int compressThreshold;
+
+    private final ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer(classLoader);
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    /**
+     * Kryo 非线程安全, 按需创建并复用, 虚拟线程下也不会每个线程一份
+     */
+    private final Pool<Codec> pool = new Pool<Codec>(true, false, Runtime.getRuntime().availableProcessors() * 4) {
+        @Override
+        protected Codec create() {
+            return new Codec(newKryo());
+        }
+    };
+
+    /**
+     * @param compressThreshold 超过该字节数才压缩, 小于等于0不压缩
+     */
+    public KryoRedisSerializer(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        Codec codec = pool.obtain();
+        try {
+            Output output = codec.output;
+            output.reset();
+            output.writeByte(KRYO);
+            codec.kryo.writeClassAndObject(output, value);
+            int length = output.position();
+            return compressThreshold > 0 && length > compressThreshold
+                    ? compress(output.getBuffer(), length) : output.toBytes();
+        } catch (KryoException e) {
+            codec.kryo.reset();
+            log.warn("kryo 无法序列化 {}, 使用 jdk 序列化: {}", value.getClass().getName(), e.getMessage());
+            return jdkSerializer.serialize(value);
+        } finally {
+            if (codec.output.getBuffer().length > MAX_POOLED_BUFFER) {
+                codec.output.setBuffer(new byte[4096], -1);
+            }
+            pool.free(codec);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        switch (bytes[0]) {
+            case KRYO:
+                return read(bytes, 1, bytes.length - 1);
+            case KRYO_LZ4:
+                int length = (bytes[1] & 0xFF) << 24 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 8 | bytes[4] & 0xFF;
+                return read(decompressor.decompress(bytes, HEADER, length), 0, length);
+            case JDK_MAGIC:
+                return jdkSerializer.deserialize(bytes);
+            default:
+                throw new SerializationException("无法识别的序列化格式: " + bytes[0]);
+        }
+    }
+
+    private Object read(byte[] bytes, int offset, int length) {
+        Codec codec = pool.obtain();
+        try {
+            codec.input.setBuffer(bytes, offset, length);
+            return codec.kryo.readClassAndObject(codec.input);
+        } catch (RuntimeException e) {
+            codec.kryo.reset();
+            throw new SerializationException("kryo 反序列化失败", e);
+        } finally {
+            codec.input.setBuffer(EMPTY);
+            pool.free(codec);
+        }
+    }
+
+    /**
+     * 压缩后没有变小时返回未压缩的结果
+     */
+    private byte[] compress(byte[] buffer, int length) {
+        int sourceLength = length - 1;
+        byte[] compressed = new byte[HEADER + compressor.maxCompressedLength(sourceLength)];
+        int compressedLength = compressor.compress(buffer, 1, sourceLength, compressed, HEADER, compressed.length - HEADER);
+        if (HEADER + compressedLength >= length) {
+            return Arrays.copyOf(buffer, length);
+        }
+        compressed[0] = KRYO_LZ4;
+        compressed[1] = (byte) (sourceLength >>> 24);
+        compressed[2] = (byte) (sourceLength >>> 16);
+        compressed[3] = (byte) (sourceLength >>> 8);
+        compressed[4] = (byte) sourceLength;
+        return Arrays.copyOf(compressed, HEADER + compressedLength);
+    }
+
+    private Kryo newKryo() {
+        Kryo kryo = new Kryo() {
+            @Override
+            @SuppressWarnings("rawtypes")
+            public Serializer getDefaultSerializer(Class type) {
+                //不可变、只读集合读取时无法逐个添加元素, 使用 jdk 序列化
+                String name = type.getName();
+                if (name.startsWith("java.util.Collections$") || name.startsWith("java.util.ImmutableCollections$")
+                        || name.startsWith("java.util.Arrays$")) {
+                    return JAVA_SERIALIZER;
+                }
+                //单例等依赖 readResolve 的类(如 spring cache 的 NullValue)直接分配实例会得到新对象
+                if (Serializable.class.isAssignableFrom(type) && hasReadResolve(type)) {
+                    return JAVA_SERIALIZER;
+                }
+                return super.getDefaultSerializer(type);
+            }
+        };
+        kryo.setClassLoader(classLoader);
+        //写入类名, 不需要提前注册; 与 jdk 序列化一样支持循环引用
+        kryo.setRegistrationRequired(false);
+        kryo.setReferences(true);
+        //没有无参构造的类直接分配实例
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        return kryo;
+    }
+
+    private static boolean hasReadResolve(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if ("readResolve".equals(method.getName()) && method.getParameterCount() == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static class Codec {
+
+        private final Kryo kryo;
+
+        private final Output output = new Output(4096, -1);
+
+        private final Input input = new Input();
+
+        private Codec(Kryo kryo) {
+            this.kryo = kryo;
+        }
+    }
+}
@@ -2,18 +2,48 @@ package com.example.common.util;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.lang.Assert;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import cn.hutool.core.util.IdUtil;
+import com.example.common.cache.NearCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.ConvertingCursor;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author ponder
@@ -24,12 +54,88 @@ import java.util.concurrent.TimeUnit;
 public class RedisUtil {
 
     /**
-     * 一天 + 1个小时  后面的随机数防止缓存穿透和击穿
+     * 默认过期时间一天, 每次写入再加上 0-1 小时的随机数, 同一批写入的key不会同时过期
      */
-    private static final long EXPIRE_TIME = 60L * 60L * 24L + RandomUtil.randomInt(1, 60 * 60);
+    private static final long EXPIRE_TIME = 60L * 60L * 24L;
+
+    private static final int EXPIRE_JITTER = 60 * 60;
+
+    /**
+     * getOrLoad 过期时间的随机增加比例
+     */
+    private static final double TTL_JITTER = 0.1;
+
+    /**
+     * getOrLoad 空值的最长缓存时间(秒)
+     */
+    private static final long NULL_TIME = 60;
+
+    /**
+     * getOrLoad 加载锁的过期时间(秒), 加载超过该时间时其他节点也会开始加载
+     */
+    private static final long LOAD_LOCK_TIME = 10;
+
+    /**
+     * 未拿到加载锁时等待其他节点写入的检查间隔(毫秒)和次数
+     */
+    private static final long LOAD_WAIT_INTERVAL = 50;
+
+    private static final int LOAD_WAIT_TIMES = 20;
+
+    private static final RedisScript<Long> UNLOCK = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    /**
+     * 写入并设置过期时间, 一次往返且原子执行
+     * KEYS[1]: key, ARGV[1]: 过期时间(秒), 其余参数见各脚本
+     */
+    private static final RedisScript<Long> HMSET_EX = RedisScript.of(
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) return 1", Long.class);
+
+    private static final RedisScript<String> HINCR_EX = RedisScript.of(
+            "local v = redis.call('HINCRBYFLOAT', KEYS[1], ARGV[2], ARGV[3]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) return v", String.class);
+
+    private static final RedisScript<Long> SADD_EX = RedisScript.of(
+            "local n = 0 for i = 2, #ARGV do n = n + redis.call('SADD', KEYS[1], ARGV[i]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) return n", Long.class);
+
+    private static final RedisScript<Long> RPUSH_EX = RedisScript.of(
+            "local n = 0 for i = 2, #ARGV do n = redis.call('RPUSH', KEYS[1], ARGV[i]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) return n", Long.class);
+
+    private static final RedisScript<Long> LSET_EX = RedisScript.of(
+            "redis.call('LSET', KEYS[1], ARGV[2], ARGV[3]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) return 1", Long.class);
+
+    /**
+     * 默认每次 SCAN 的 COUNT
+     */
+    private static final int SCAN_COUNT = 1000;
+
+    /**
+     * 默认每批 UNLINK 的key数
+     */
+    private static final int UNLINK_BATCH = 500;
 
     private final RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 本节点正在加载的key, 同一个key只加载一次
+     */
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 本地缓存, 未开启时为null
+     */
+    private NearCache nearCache;
+
+    @Autowired(required = false)
+    public void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
     // ============================= Redis 消息订阅/发布 ==============
 
     /**
@@ -45,16 +151,86 @@ public class RedisUtil {
     // =============================common============================
 
     /**
-     * 获取所有Key
+     * 获取所有Key, 通过 SCAN 分批获取, 不阻塞 redis; key 较多时使用 {@link #scan(String, int)}
      *
      * @param pattern 为空时 匹配所有key
      * @return
      */
     public Set<String> keys(String pattern) {
-        if (StrUtil.isEmpty(pattern)) {
-            pattern = "*";
+        try (Stream<String> keys = scan(pattern, SCAN_COUNT)) {
+            return keys.collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+    }
+
+    /**
+     * 通过 SCAN 游标逐批获取匹配的key, 不会一次加载全部key
+     * 返回的 Stream 占用一个连接, 使用完需要关闭(try-with-resources)
+     * SCAN 期间新增或删除的key可能不会返回, 同一个key也可能返回多次
+     *
+     * @param pattern 为空时 匹配所有key
+     * @param count   每次 SCAN 的 COUNT, 越大往返越少, 单次执行时间越长
+     * @return
+     */
+    public Stream<String> scan(String pattern, int count) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(StrUtil.isEmpty(pattern) ? "*" : pattern)
+                .count(count)
+                .build();
+        RedisSerializer<?> keySerializer = redisTemplate.getKeySerializer();
+        Cursor<String> cursor = redisTemplate.executeWithStickyConnection(connection ->
+                new ConvertingCursor<>(connection.scan(options), key -> (String) keySerializer.deserialize(key)));
+        Assert.notNull(cursor, "redis scan 失败");
+        Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(cursor, Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
+    /**
+     * 删除匹配的key, 边 SCAN 边分批 UNLINK, 内存由 redis 后台线程回收
+     *
+     * @param pattern         匹配规则, 不能为空
+     * @param count           每次 SCAN 的 COUNT
+     * @param batchSize       每批 UNLINK 的key数, 同一批在一个 pipeline 中发送
+     * @param keysPerSecond   每秒最多删除的key数, 小于等于0不限速
+     * @return 删除的key数
+     */
+    public long unlink(String pattern, int count, int batchSize, int keysPerSecond) {
+        Assert.notBlank(pattern, "pattern 不能为空");
+        long interval = keysPerSecond > 0 ? TimeUnit.SECONDS.toNanos(batchSize) / keysPerSecond : 0;
+        long deleted = 0;
+        long next = System.nanoTime();
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Stream<String> keys = scan(pattern, count)) {
+            Iterator<String> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() < batchSize && iterator.hasNext()) {
+                    continue;
+                }
+                if (interval > 0) {
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        ThreadUtil.sleep(TimeUnit.NANOSECONDS.toMillis(wait));
+                    }
+                    next = Math.max(next, System.nanoTime()) + interval;
+                }
+                deleted += unlink(batch);
+                batch.clear();
+            }
         }
-        return redisTemplate.keys(pattern);
+        return deleted;
+    }
+
+    /**
+     * 在一个 pipeline 中逐个 UNLINK, key 不在同一个 slot 时也可以执行
+     *
+     * @return 删除的key数
+     */
+    private long unlink(List<String> keys) {
+        long deleted = pipelined(operations -> keys.forEach(operations::unlink)).stream()
+                .mapToLong(result -> result instanceof Number ? ((Number) result).longValue() : Boolean.TRUE.equals(result) ? 1 : 0)
+                .sum();
+        invalidate(keys);
+        return deleted;
     }
 
     /**
@@ -117,6 +293,7 @@ public class RedisUtil {
             } else {
                 redisTemplate.delete(CollUtil.toList(key));
             }
+            invalidate(Arrays.asList(key));
         }
     }
 
@@ -129,28 +306,196 @@ public class RedisUtil {
     public void del(Set<String> keys) {
         if (keys != null && keys.size() > 0) {
             redisTemplate.delete(keys);
+            invalidate(keys);
         }
     }
 
     /**
-     * 删除以key为前缀的数据
+     * 删除以key为前缀的数据, 不限速; 需要限速时使用 {@link #unlink(String, int, int, int)}
      *
      * @param key
      */
-    public void delPrefix(String key) {
-        // 获取Redis中特定前缀
-        Set<String> keys = redisTemplate.keys(key + "*");
-        redisTemplate.delete(keys);
+    public long delPrefix(String key) {
+        Assert.notEmpty(key, "前缀不能为空");
+        return delPattern(key + "*");
     }
 
     /**
-     * 删除patternKey数据, 正则表达式
+     * 删除patternKey数据, glob 规则
      *
      * @param patternKey
      */
-    public void delPattern(String patternKey) {
-        Set<String> keys = redisTemplate.keys(patternKey);
-        redisTemplate.delete(keys);
+    public long delPattern(String patternKey) {
+        return unlink(patternKey, SCAN_COUNT, UNLINK_BATCH, 0);
+    }
+
+    // ============================批量操作=============================
+
+    /**
+     * 批量获取, 一次 MGET
+     *
+     * @param keys 键
+     * @return 与 keys 顺序一致, 不存在的为null
+     */
+    public List<Object> mget(Collection<String> keys) {
+        if (CollUtil.isEmpty(keys)) {
+            return new ArrayList<>();
+        }
+        return redisTemplate.opsForValue().multiGet(keys);
+    }
+
+    /**
+     * 批量放入并设置时间, 管道中逐个 SET EX, 一次往返
+     *
+     * @param map  键值
+     * @param time 时间(秒) 小于等于0时为默认时间
+     * @return true成功 false失败
+     */
+    public boolean mset(Map<String, Object> map, long time) {
+        if (CollUtil.isEmpty(map)) {
+            return true;
+        }
+        long seconds = time > 0 ? time : defaultTime();
+        try {
+            pipelined(operations -> map.forEach((key, value) ->
+                    operations.opsForValue().set(key, value, seconds, TimeUnit.SECONDS)));
+            invalidate(map.keySet());
+            return true;
+        } catch (Exception e) {
+            log.error("redis mset size:{},time:{} error", map.size(), time, e);
+            return false;
+        }
+    }
+
+    /**
+     * 批量获取多个hash的所有键值, 管道中逐个 HGETALL, 一次往返
+     *
+     * @param keys 键
+     * @return key -> hash, 不存在的 hash 为空Map
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<Object, Object>> hmget(Collection<String> keys) {
+        Map<String, Map<Object, Object>> result = new LinkedHashMap<>(keys.size() * 2);
+        if (CollUtil.isEmpty(keys)) {
+            return result;
+        }
+        List<Object> values = pipelined(operations -> keys.forEach(key -> operations.opsForHash().entries(key)));
+        int i = 0;
+        for (String key : keys) {
+            result.put(key, (Map<Object, Object>) values.get(i++));
+        }
+        return result;
+    }
+
+    /**
+     * 获取hash中的多个项, 一次 HMGET
+     *
+     * @param key   键
+     * @param items 项
+     * @return 与 items 顺序一致, 不存在的为null
+     */
+    public List<Object> hmget(String key, Collection<Object> items) {
+        return redisTemplate.opsForHash().multiGet(key, items);
+    }
+
+    /**
+     * 批量放入多个set并设置时间, 管道中逐个 SADD + EXPIRE, 一次往返
+     *
+     * @param values 键 -> 值
+     * @param time   时间(秒) 小于等于0时为默认时间
+     * @return 成功个数
+     */
+    public long sSet(Map<String, ? extends Collection<?>> values, long time) {
+        if (CollUtil.isEmpty(values)) {
+            return 0;
+        }
+        long seconds = time > 0 ? time : defaultTime();
+        try {
+            List<Object> results = pipelined(operations -> values.forEach((key, members) -> {
+                operations.opsForSet().add(key, members.toArray());
+                operations.expire(key, seconds, TimeUnit.SECONDS);
+            }));
+            long count = 0;
+            for (Object result : results) {
+                if (result instanceof Long) {
+                    count += (Long) result;
+                }
+            }
+            return count;
+        } catch (Exception e) {
+            log.error("redis sSet size:{},time:{} error", values.size(), time, e);
+            return 0;
+        }
+    }
+
+    /**
+     * 批量设置过期时间, 一次往返
+     *
+     * @param keys 键
+     * @param time 时间(秒)
+     */
+    public void expire(Collection<String> keys, long time) {
+        if (CollUtil.isEmpty(keys) || time <= 0) {
+            return;
+        }
+        pipelined(operations -> keys.forEach(key -> operations.expire(key, time, TimeUnit.SECONDS)));
+    }
+
+    /**
+     * 在管道中执行多条命令, 一次往返
+     *
+     * @return 每条命令的结果
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> pipelined(Consumer<RedisOperations<String, Object>> commands) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                commands.accept((RedisOperations<String, Object>) operations);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 写入后删除本地缓存并通知其他节点
+     * 不经过 RedisUtil 的写入(包括 pipelined)不会通知, 只能等本地缓存过期
+     */
+    private void invalidate(Collection<String> keys) {
+        if (nearCache == null) {
+            return;
+        }
+        List<String> cached = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (nearCache.accept(key)) {
+                cached.add(key);
+            }
+        }
+        if (cached.isEmpty()) {
+            return;
+        }
+        nearCache.invalidate(cached);
+        try {
+            publish(nearCache.getChannel(), cached);
+        } catch (Exception e) {
+            log.error("redis 缓存失效消息发送失败 keys:{}", cached, e);
+        }
+    }
+
+    /**
+     * 执行 lua 脚本, 参数按字符串传入
+     *
+     * @param script 脚本, 返回值为 String 时按字符串解析, 其他类型使用 redis 原始返回值
+     * @param keys   键
+     * @param args   参数
+     * @return 脚本返回值
+     */
+    public <T> T eval(RedisScript<T> script, List<String> keys, Object... args) {
+        List<Object> raw = new ArrayList<>(args.length);
+        for (Object arg : args) {
+            raw.add(String.valueOf(arg).getBytes(StandardCharsets.UTF_8));
+        }
+        return execute(script, keys, raw);
     }
 
     // ============================String=============================
@@ -162,7 +507,13 @@ public class RedisUtil {
      * @return 值
      */
     public Object get(String key) {
-        return key == null ? null : redisTemplate.opsForValue().get(key);
+        if (key == null) {
+            return null;
+        }
+        if (nearCache != null && nearCache.accept(key)) {
+            return nearCache.get(key, () -> redisTemplate.opsForValue().get(key));
+        }
+        return redisTemplate.opsForValue().get(key);
     }
 
     /**
@@ -173,7 +524,21 @@ public class RedisUtil {
      * @return 值
      */
     public <T> T get(String key, Class<T> clazz){
-        Object o = this.get(key);
+        if (key != null && nearCache != null && nearCache.accept(key)) {
+            //开启本地缓存时缓存转换后的对象, 多次获取返回同一个实例
+            return nearCache.get(key, clazz, () -> toBean(this.get(key), clazz));
+        }
+        return toBean(this.get(key), clazz);
+    }
+
+    private static <T> T toBean(Object o, Class<T> clazz) {
+        if (o == null) {
+            return null;
+        }
+        if (clazz.isInstance(o)) {
+            //序列化时保留了类型, 直接返回
+            return clazz.cast(o);
+        }
         return JSONUtil.toBean(JSONUtil.parseObj(o), clazz);
     }
 
@@ -186,7 +551,7 @@ public class RedisUtil {
      * @return true成功 false失败
      */
     public boolean set(String key, Object value) {
-        return this.set(key, value, EXPIRE_TIME);
+        return this.set(key, value, defaultTime());
     }
 
     /**
@@ -204,6 +569,7 @@ public class RedisUtil {
             } else {
                 redisTemplate.opsForValue().set(key, value);
             }
+            invalidate(Collections.singletonList(key));
             return true;
         } catch (Exception e) {
             log.error("redis set key:{},value:{},time:{} error", key, value, time, e);
@@ -220,7 +586,9 @@ public class RedisUtil {
      */
     public long incr(String key, long delta) {
         Assert.isTrue(delta > 0, "递增因子必须大于0");
-        return redisTemplate.opsForValue().increment(key, delta);
+        long value = redisTemplate.opsForValue().increment(key, delta);
+        invalidate(Collections.singletonList(key));
+        return value;
     }
 
     /**
@@ -232,7 +600,90 @@ public class RedisUtil {
      */
     public long decr(String key, long delta) {
         Assert.isTrue(delta > 0, "递增因子必须大于0");
-        return redisTemplate.opsForValue().increment(key, -delta);
+        long value = redisTemplate.opsForValue().increment(key, -delta);
+        invalidate(Collections.singletonList(key));
+        return value;
+    }
+
+    // ============================缓存加载=============================
+
+    /**
+     * 读取缓存, 不存在时由 loader 加载并写入
+     * 本节点同一个key同时只加载一次, 其他线程等待结果; 多节点通过 redis 锁只由一个节点加载, 其他节点等待写入;
+     * loader 返回 null 时写入空值标记, 短时间内不再加载; 直接用 get 读取时会读到 {@link NullValue}
+     *
+     * @param key    键
+     * @param time   时间(秒), 写入时随机增加 10%, 小于等于0时为默认时间
+     * @param loader 加载数据, 如查询数据库
+     * @return 值, 不存在时为null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, long time, Supplier<T> loader) {
+        Object value = get(key);
+        if (value == null) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> current = loading.putIfAbsent(key, future);
+            if (current != null) {
+                value = await(current);
+            } else {
+                try {
+                    value = loadWithLock(key, time, loader);
+                    future.complete(value);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    loading.remove(key, future);
+                }
+            }
+        }
+        return value instanceof NullValue ? null : (T) value;
+    }
+
+    private Object loadWithLock(String key, long time, Supplier<?> loader) {
+        String lockKey = key + ":lock";
+        String token = IdUtil.fastSimpleUUID();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey, token, LOAD_LOCK_TIME, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            //其他节点正在加载, 等待写入, 超时后自己加载
+            for (int i = 0; i < LOAD_WAIT_TIMES; i++) {
+                ThreadUtil.sleep(LOAD_WAIT_INTERVAL);
+                Object value = redisTemplate.opsForValue().get(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        try {
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                return value;
+            }
+            value = loader.get();
+            if (value == null) {
+                long seconds = time > 0 ? Math.min(time, NULL_TIME) : NULL_TIME;
+                set(key, NullValue.INSTANCE, seconds);
+                return NullValue.INSTANCE;
+            }
+            long seconds = time > 0 ? time + RandomUtil.randomLong(0, (long) (time * TTL_JITTER) + 1) : defaultTime();
+            set(key, value, seconds);
+            return value;
+        } finally {
+            if (Boolean.TRUE.equals(locked)) {
+                execute(UNLOCK, lockKey, Collections.singletonList(rawValue(token)));
+            }
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     // ================================Map=================================
@@ -245,6 +696,9 @@ public class RedisUtil {
      * @return 值
      */
     public Object hget(String key, String item) {
+        if (nearCache != null && nearCache.accept(key)) {
+            return nearCache.hget(key, item, () -> redisTemplate.opsForHash().get(key, item));
+        }
         return redisTemplate.opsForHash().get(key, item);
     }
 
@@ -284,7 +738,7 @@ public class RedisUtil {
      * @return true 成功 false 失败
      */
     public boolean hmset(String key, Map<String, Object> map) {
-        return this.hmset(key, map, EXPIRE_TIME);
+        return this.hmset(key, map, defaultTime());
     }
 
     /**
@@ -297,12 +751,14 @@ public class RedisUtil {
      */
     public boolean hmset(String key, Map<String, Object> map, long time) {
         try {
-            redisTemplate.opsForHash().putAll(key, map);
-            if (time > 0) {
-                expire(key, time);
-            } else {
-                expire(key, EXPIRE_TIME);
-            }
+            List<Object> args = new ArrayList<>(map.size() * 2 + 1);
+            args.add(rawTime(time));
+            map.forEach((item, value) -> {
+                args.add(rawHashKey(item));
+                args.add(rawHashValue(value));
+            });
+            execute(HMSET_EX, key, args);
+            invalidate(Collections.singletonList(key));
             return true;
         } catch (Exception e) {
             log.error("redis hmset key:{},value:{},time:{} error", key, map, time, e);
@@ -320,7 +776,7 @@ public class RedisUtil {
      * @return true 成功 false失败
      */
     public boolean hset(String key, String item, Object value) {
-        return this.hset(key, item, value, EXPIRE_TIME);
+        return this.hset(key, item, value, defaultTime());
     }
 
     /**
@@ -334,12 +790,8 @@ public class RedisUtil {
      */
     public boolean hset(String key, String item, Object value, long time) {
         try {
-            redisTemplate.opsForHash().put(key, item, value);
-            if (time > 0) {
-                expire(key, time);
-            } else {
-                expire(key, EXPIRE_TIME);
-            }
+            execute(HMSET_EX, key, Arrays.asList(rawTime(time), rawHashKey(item), rawHashValue(value)));
+            invalidate(Collections.singletonList(key));
             return true;
         } catch (Exception e) {
             log.error("redis hset key:{},item:{},value:{},time:{} error", key, item, value, time, e);
@@ -354,7 +806,9 @@ public class RedisUtil {
      * @param item 项 可以使多个 不能为null
      */
     public Object hdel(String key, Object... item) {
-        return redisTemplate.opsForHash().delete(key, item);
+        Long deleted = redisTemplate.opsForHash().delete(key, item);
+        invalidate(Collections.singletonList(key));
+        return deleted;
     }
 
     /**
@@ -378,9 +832,7 @@ public class RedisUtil {
      * @return
      */
     public Double hincr(String key, String item, Double by) {
-        Double increment = redisTemplate.opsForHash().increment(key, item, by);
-        expire(key, EXPIRE_TIME);
-        return increment;
+        return hincrAndTime(key, item, by);
     }
 
     /**
@@ -393,9 +845,14 @@ public class RedisUtil {
      * @return
      */
     public Double hdecr(String key, String item, Double by) {
-        Double increment = redisTemplate.opsForHash().increment(key, item, -by);
-        expire(key, EXPIRE_TIME);
-        return increment;
+        return hincrAndTime(key, item, -by);
+    }
+
+    private Double hincrAndTime(String key, String item, Double by) {
+        String value = execute(HINCR_EX, key, Arrays.asList(rawTime(defaultTime()), rawHashKey(item),
+                by.toString().getBytes(StandardCharsets.UTF_8)));
+        invalidate(Collections.singletonList(key));
+        return value == null ? null : Double.valueOf(value);
     }
 
     // ============================set=============================
@@ -441,9 +898,7 @@ public class RedisUtil {
      */
     public long sSet(String key, Object... values) {
         try {
-            Long add = redisTemplate.opsForSet().add(key, values);
-            expire(key, EXPIRE_TIME);
-            return add;
+            return sAddAndTime(key, defaultTime(), values);
         } catch (Exception e) {
             log.error("redis sSet key:{},value:{} error", key, values, e);
             return 0;
@@ -460,19 +915,23 @@ public class RedisUtil {
      */
     public long sSetAndTime(String key, long time, Object... values) {
         try {
-            Long count = redisTemplate.opsForSet().add(key, values);
-            if (time > 0) {
-                expire(key, time);
-            } else {
-                expire(key, EXPIRE_TIME);
-            }
-            return count;
+            return sAddAndTime(key, time, values);
         } catch (Exception e) {
             log.error("redis sSetAndTime key:{},value:{},time:{} error", key, values, time, e);
             return 0;
         }
     }
 
+    private long sAddAndTime(String key, long time, Object... values) {
+        List<Object> args = new ArrayList<>(values.length + 1);
+        args.add(rawTime(time));
+        for (Object value : values) {
+            args.add(rawValue(value));
+        }
+        Long count = execute(SADD_EX, key, args);
+        return count == null ? 0 : count;
+    }
+
     /**
      * 获取set缓存的长度
      *
@@ -563,7 +1022,7 @@ public class RedisUtil {
      * @return
      */
     public boolean lSet(String key, Object value) {
-        return this.lSet(key, value, EXPIRE_TIME);
+        return this.lSet(key, value, defaultTime());
     }
 
     /**
@@ -576,12 +1035,7 @@ public class RedisUtil {
      */
     public boolean lSet(String key, Object value, long time) {
         try {
-            redisTemplate.opsForList().rightPush(key, value);
-            if (time > 0) {
-                expire(key, time);
-            } else {
-                expire(key, EXPIRE_TIME);
-            }
+            execute(RPUSH_EX, key, Arrays.asList(rawTime(time), rawValue(value)));
             return true;
         } catch (Exception e) {
             log.error("redis lset key:{},value:{},time:{} error", key, value, time, e);
@@ -598,7 +1052,7 @@ public class RedisUtil {
      * @return
      */
     public boolean lSet(String key, List<Object> value) {
-        return this.lSet(key, value, EXPIRE_TIME);
+        return this.lSet(key, value, defaultTime());
     }
 
     /**
@@ -611,12 +1065,10 @@ public class RedisUtil {
      */
     public boolean lSet(String key, List<Object> value, long time) {
         try {
-            redisTemplate.opsForList().rightPushAll(key, value);
-            if (time > 0) {
-                expire(key, time);
-            } else {
-                expire(key, EXPIRE_TIME);
-            }
+            List<Object> args = new ArrayList<>(value.size() + 1);
+            args.add(rawTime(time));
+            value.forEach(v -> args.add(rawValue(v)));
+            execute(RPUSH_EX, key, args);
             return true;
         } catch (Exception e) {
             log.error("redis lSet key:{},value:{},time:{} error", key, value, time, e);
@@ -634,8 +1086,8 @@ public class RedisUtil {
      */
     public boolean lUpdateIndex(String key, long index, Object value) {
         try {
-            redisTemplate.opsForList().set(key, index, value);
-            expire(key, EXPIRE_TIME);
+            execute(LSET_EX, key, Arrays.asList(rawTime(defaultTime()),
+                    String.valueOf(index).getBytes(StandardCharsets.UTF_8), rawValue(value)));
             return true;
         } catch (Exception e) {
             log.error("redis lUpdateIndex key:{},value:{},index:{} error", key, value, index, e);
@@ -661,4 +1113,43 @@ public class RedisUtil {
             return 0;
         }
     }
+
+    // ============================序列化=============================
+
+    private <T> T execute(RedisScript<T> script, String key, List<Object> args) {
+        return execute(script, Collections.singletonList(key), args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T execute(RedisScript<T> script, List<String> keys, List<Object> args) {
+        return redisTemplate.execute(script, RedisSerializer.byteArray(), (RedisSerializer<T>) resultSerializer(script),
+                keys, args.toArray());
+    }
+
+    private static RedisSerializer<?> resultSerializer(RedisScript<?> script) {
+        return String.class.equals(script.getResultType()) ? RedisSerializer.string() : null;
+    }
+
+    private static long defaultTime() {
+        return EXPIRE_TIME + RandomUtil.randomInt(1, EXPIRE_JITTER);
+    }
+
+    private static byte[] rawTime(long time) {
+        return String.valueOf(time > 0 ? time : defaultTime()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawHashKey(Object item) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashKeySerializer()).serialize(item);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawHashValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+    }
 }
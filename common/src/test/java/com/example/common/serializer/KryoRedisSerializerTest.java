@@ -0,0 +1,196 @@
+package com.example.common.serializer;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * redis 中实际读写的类型经过 KryoRedisSerializer 后保持不变
+ * RemoteMessage、TopicBroadcast 在 push 模块中, 这里用结构相同的类代替
+ */
+class KryoRedisSerializerTest {
+
+    private static final int THRESHOLD = 256;
+
+    private final KryoRedisSerializer serializer = new KryoRedisSerializer(THRESHOLD);
+
+    @Test
+    void remoteMessageBatch() {
+        ArrayList<RemoteMessage> batch = new ArrayList<>();
+        batch.add(new RemoteMessage("s1", "{\"a\":1}", null, null));
+        batch.add(new RemoteMessage("s2", null, "text", null));
+        batch.add(new RemoteMessage("s3", null, null, new byte[]{1, 2, 3}));
+
+        Object result = roundTrip(batch);
+
+        assertThat(result).isInstanceOf(ArrayList.class);
+        @SuppressWarnings("unchecked")
+        List<RemoteMessage> messages = (List<RemoteMessage>) result;
+        assertThat(messages).hasSize(3);
+        assertThat(messages.get(0)).isEqualTo(batch.get(0));
+        assertThat(messages.get(1)).isEqualTo(batch.get(1));
+        assertThat(messages.get(2).getBinary()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void largeBatchIsCompressed() {
+        ArrayList<RemoteMessage> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new RemoteMessage("session-" + i, "{\"price\":" + i + "}", null, null));
+        }
+
+        byte[] bytes = serializer.serialize(batch);
+
+        assertThat(bytes[0]).isEqualTo((byte) 2);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(batch);
+    }
+
+    @Test
+    void topicBroadcast() {
+        TopicBroadcast broadcast = new TopicBroadcast("127.0.0.1:8080", "testHandler",
+                new ArrayList<>(Arrays.asList(new TopicBroadcast.Item("market.btc.depth", "{\"step\":1}", "{\"bids\":[]}"),
+                        new TopicBroadcast.Item("market.eth.depth", null, "{}"))));
+
+        assertThat(roundTrip(broadcast)).isEqualTo(broadcast);
+    }
+
+    @Test
+    void topicBroadcastWithEmptyItems() {
+        TopicBroadcast broadcast = new TopicBroadcast("127.0.0.1:8080", "testHandler", Collections.emptyList());
+
+        TopicBroadcast result = (TopicBroadcast) roundTrip(broadcast);
+
+        assertThat(result.getItems()).isEmpty();
+        assertThat(result).isEqualTo(broadcast);
+    }
+
+    @Test
+    void hutoolJson() {
+        JSONObject object = new JSONObject()
+                .set("symbol", "btc")
+                .set("price", 42.5)
+                .set("nested", new JSONObject().set("a", 1))
+                .set("list", new JSONArray().set(1).set("two"));
+        JSONArray array = new JSONArray().set(object).set("x");
+
+        Object objectResult = roundTrip(object);
+        Object arrayResult = roundTrip(array);
+
+        assertThat(objectResult).isInstanceOf(JSONObject.class);
+        assertThat(objectResult.toString()).isEqualTo(object.toString());
+        assertThat(arrayResult).isInstanceOf(JSONArray.class);
+        assertThat(arrayResult.toString()).isEqualTo(array.toString());
+        //读取后仍可正常修改
+        ((JSONObject) objectResult).set("extra", true);
+        assertThat(((JSONObject) objectResult).getBool("extra")).isTrue();
+    }
+
+    @Test
+    void cacheNullValue() {
+        assertThat(roundTrip(NullValue.INSTANCE)).isSameAs(NullValue.INSTANCE);
+    }
+
+    @Test
+    void collectionsWrappers() {
+        List<String> unmodifiable = Collections.unmodifiableList(new ArrayList<>(Arrays.asList("a", "b")));
+        Map<String, Integer> unmodifiableMap = Collections.unmodifiableMap(new HashMap<>(Collections.singletonMap("k", 1)));
+
+        assertThat(roundTrip(Collections.emptyList())).isEqualTo(Collections.emptyList());
+        assertThat(roundTrip(Collections.emptyMap())).isEqualTo(Collections.emptyMap());
+        assertThat(roundTrip(Collections.singletonList("a"))).isEqualTo(Collections.singletonList("a"));
+        assertThat(roundTrip(unmodifiable)).isEqualTo(unmodifiable);
+        assertThat(roundTrip(unmodifiableMap)).isEqualTo(unmodifiableMap);
+        assertThat(roundTrip(Arrays.asList("x", "y"))).isEqualTo(Arrays.asList("x", "y"));
+        assertThat(roundTrip(List.of("p", "q"))).isEqualTo(List.of("p", "q"));
+    }
+
+    @Test
+    void legacyJdkBytes() {
+        JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+        ArrayList<RemoteMessage> batch = new ArrayList<>(Collections.singletonList(new RemoteMessage("s1", "{}", null, null)));
+        byte[] legacy = jdk.serialize(batch);
+
+        assertThat(legacy[0]).isEqualTo((byte) 0xAC);
+        assertThat(legacy[1]).isEqualTo((byte) 0xED);
+        assertThat(serializer.deserialize(legacy)).isEqualTo(batch);
+        assertThat(serializer.deserialize(jdk.serialize("legacy"))).isEqualTo("legacy");
+    }
+
+    @Test
+    void nullAndEmpty() {
+        assertThat(serializer.serialize(null)).isEmpty();
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    /**
+     * 与 push 模块的 RemoteMessage 结构相同
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RemoteMessage implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String sessionId;
+
+        private String json;
+
+        private String text;
+
+        private byte[] binary;
+    }
+
+    /**
+     * 与 push 模块的 TopicBroadcast 结构相同
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TopicBroadcast implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String node;
+
+        private String handler;
+
+        private List<Item> items;
+
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Item implements Serializable {
+
+            private static final long serialVersionUID = 1L;
+
+            private String name;
+
+            private String paramKey;
+
+            private String json;
+        }
+    }
+
+    private Object roundTrip(Object value) {
+        byte[] bytes = serializer.serialize(value);
+        assertThat(bytes[0]).isNotEqualTo((byte) 0xAC);
+        return serializer.deserialize(bytes);
+    }
+}
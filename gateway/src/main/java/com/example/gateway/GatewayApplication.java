@@ -4,7 +4,8 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.web.reactive.config.EnableWebFlux;
 
-@SpringBootApplication
+//com.example.common.config 只通过 spring.factories 自动配置, 不扫描
+@SpringBootApplication(scanBasePackages = {"com.example.gateway.**", "com.example.common.util", "com.example.common.limit"})
 @EnableWebFlux
 public class GatewayApplication {
 
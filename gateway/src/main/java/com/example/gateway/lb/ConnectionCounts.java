@@ -0,0 +1,116 @@
+package com.example.gateway.lb;
+
+import cn.hutool.core.util.NumberUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * push 节点上报到 redis 的连接数
+ * 定期批量读取并缓存, 两次读取之间本网关分配出去的连接在本地累加, 避免新连接集中到同一个节点
+ */
+@Slf4j
+@Component
+public class ConnectionCounts {
+
+    /**
+     * 与 push 模块 ConnectionBalancer 上报的 key 一致: ws:connections:{host}:{port}
+     */
+    private static final String KEY_PREFIX = "ws:connections:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    /**
+     * 缓存刷新间隔(毫秒)
+     */
+    private final long refreshInterval;
+
+    /**
+     * key: 实例 host:port
+     */
+    private final Map<String, Entry> counts = new ConcurrentHashMap<>();
+
+    public ConnectionCounts(ReactiveStringRedisTemplate redisTemplate,
+                            @Value("${gateway.lb.refresh-interval:1000}") long refreshInterval) {
+        this.redisTemplate = redisTemplate;
+        this.refreshInterval = refreshInterval;
+    }
+
+    public static String id(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    /**
+     * 获取实例的连接数, 顺序与 instances 一致
+     */
+    public Mono<long[]> get(List<ServiceInstance> instances) {
+        long now = System.currentTimeMillis();
+        boolean fresh = true;
+        for (ServiceInstance instance : instances) {
+            Entry entry = counts.get(id(instance));
+            if (entry == null || now - entry.time >= refreshInterval) {
+                fresh = false;
+                break;
+            }
+        }
+        if (fresh) {
+            return Mono.just(cached(instances));
+        }
+        List<String> keys = new ArrayList<>(instances.size());
+        instances.forEach(instance -> keys.add(KEY_PREFIX + id(instance)));
+        return redisTemplate.opsForValue().multiGet(keys)
+                .map(values -> {
+                    for (int i = 0; i < instances.size(); i++) {
+                        String value = values.get(i);
+                        //未上报的节点按 0 计算, 刚启动的节点优先分配
+                        long count = NumberUtil.isLong(value) ? Long.parseLong(value) : 0;
+                        counts.put(id(instances.get(i)), new Entry(count, now));
+                    }
+                    return cached(instances);
+                })
+                .onErrorResume(e -> {
+                    log.error("读取 push 节点连接数失败", e);
+                    return Mono.just(cached(instances));
+                });
+    }
+
+    /**
+     * 本网关分配了一个连接
+     */
+    public void increment(ServiceInstance instance) {
+        Entry entry = counts.get(id(instance));
+        if (entry != null) {
+            entry.count.incrementAndGet();
+        }
+    }
+
+    private long[] cached(List<ServiceInstance> instances) {
+        long[] result = new long[instances.size()];
+        for (int i = 0; i < result.length; i++) {
+            Entry entry = counts.get(id(instances.get(i)));
+            result[i] = entry == null ? 0 : entry.count.get();
+        }
+        return result;
+    }
+
+    private static class Entry {
+
+        private final AtomicLong count;
+
+        private final long time;
+
+        private Entry(long count, long time) {
+            this.count = new AtomicLong(count);
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.gateway.lb;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按连接数最少选择实例
+ * websocket 是长连接, 轮询在节点滚动重启后会让先启动的节点持有大部分连接, 这里选择当前连接数最少的节点,
+ * 连接数相同时随机选择
+ */
+@Slf4j
+public class LeastConnectionsLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final String serviceId;
+
+    private final ConnectionCounts connectionCounts;
+
+    public LeastConnectionsLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                        String serviceId, ConnectionCounts connectionCounts) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.connectionCounts = connectionCounts;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().flatMap(instances -> {
+            if (instances.isEmpty()) {
+                log.warn("没有可用的实例: {}", serviceId);
+                return Mono.just(new EmptyResponse());
+            }
+            return connectionCounts.get(instances).map(counts -> {
+                ServiceInstance instance = select(instances, counts);
+                connectionCounts.increment(instance);
+                if (supplier instanceof SelectedInstanceCallback) {
+                    ((SelectedInstanceCallback) supplier).selectedServiceInstance(instance);
+                }
+                return new DefaultResponse(instance);
+            });
+        });
+    }
+
+    private static ServiceInstance select(List<ServiceInstance> instances, long[] counts) {
+        int selected = -1;
+        int ties = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (selected < 0 || counts[i] < counts[selected]) {
+                selected = i;
+                ties = 1;
+            } else if (counts[i] == counts[selected] && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                //蓄水池抽样, 连接数相同的实例等概率选中
+                selected = i;
+            }
+        }
+        return instances.get(selected);
+    }
+}
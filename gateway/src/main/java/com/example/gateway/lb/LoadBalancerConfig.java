@@ -0,0 +1,12 @@
+package com.example.gateway.lb;
+
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * push-service 的 websocket 长连接按连接数最少分配, 其他服务使用默认轮询
+ */
+@Configuration
+@LoadBalancerClient(name = "push-service", configuration = PushLoadBalancerConfig.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,24 @@
+package com.example.gateway.lb;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * push-service 的负载均衡配置, 由 {@link LoadBalancerConfig} 注册到 push-service 的子容器中,
+ * 不能加 @Configuration, 否则会被扫描成所有服务的默认配置
+ */
+public class PushLoadBalancerConfig {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> leastConnectionsLoadBalancer(Environment environment,
+                                                                             LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                             ConnectionCounts connectionCounts) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LeastConnectionsLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class), name, connectionCounts);
+    }
+}
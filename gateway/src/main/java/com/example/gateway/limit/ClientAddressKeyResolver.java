@@ -0,0 +1,34 @@
+package com.example.gateway.limit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 按客户端 ip 限流
+ * 默认取连接的远端地址; 网关前面有代理时配置 gateway.limit.trusted-proxies 为代理层数,
+ * 从 X-Forwarded-For 末尾往前数, 只信任这些代理追加的地址, 客户端自己伪造的部分不会被采用
+ */
+@Component
+public class ClientAddressKeyResolver implements KeyResolver {
+
+    private final RemoteAddressResolver remoteAddressResolver;
+
+    public ClientAddressKeyResolver(@Value("${gateway.limit.trusted-proxies:0}") int trustedProxies) {
+        this.remoteAddressResolver = trustedProxies > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(trustedProxies) : new RemoteAddressResolver() {
+        };
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        InetSocketAddress address = remoteAddressResolver.resolve(exchange);
+        return address == null ? Mono.empty() : Mono.just(address.getAddress().getHostAddress());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.gateway.limit;
+
+import com.example.common.limit.TokenBucketLimiter;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 网关 RequestRateLimiter 使用的限流器, 基于 common 的 redis 令牌桶, 所有网关实例共用
+ * 路由配置:
+ * filters:
+ *   - name: RequestRateLimiter
+ *     args:
+ *       rate-limiter: "#{@tokenBucketRateLimiter}"
+ *       key-resolver: "#{@clientAddressKeyResolver}"
+ *       token-bucket-rate-limiter.rate: 5
+ *       token-bucket-rate-limiter.capacity: 10
+ */
+@Primary
+@Component
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket-rate-limiter";
+
+    private final TokenBucketLimiter tokenBucketLimiter;
+
+    public TokenBucketRateLimiter(TokenBucketLimiter tokenBucketLimiter, ConfigurationService configurationService) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.tokenBucketLimiter = tokenBucketLimiter;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, new Config());
+        //RedisUtil 是阻塞调用, 不能在 netty 线程上执行
+        return Mono.fromCallable(() -> tokenBucketLimiter.acquire("gw:" + routeId + ":" + id,
+                        config.getRate(), config.getCapacity(), 1))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(result -> new Response(result.isAllowed(), headers(config, result.getRemaining())));
+    }
+
+    private static Map<String, String> headers(Config config, long remaining) {
+        Map<String, String> headers = new HashMap<>(4);
+        headers.put("X-RateLimit-Remaining", String.valueOf(remaining));
+        headers.put("X-RateLimit-Replenish-Rate", String.valueOf(config.getRate()));
+        headers.put("X-RateLimit-Burst-Capacity", String.valueOf(config.getCapacity()));
+        return headers;
+    }
+
+    @Data
+    public static class Config {
+
+        /**
+         * 每秒令牌数
+         */
+        private double rate = 10;
+
+        /**
+         * 桶容量, 即允许的突发数
+         */
+        private long capacity = 20;
+    }
+}
@@ -8,7 +8,8 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableScheduling
 @EnableDiscoveryClient
-@SpringBootApplication(scanBasePackages = {"com.example.push.**"})
+//com.example.common.config 只通过 spring.factories 自动配置, 不扫描
+@SpringBootApplication(scanBasePackages = {"com.example.push.**", "com.example.common.util", "com.example.common.limit"})
 @EnableFeignClients(basePackages = {"com.example.*.feign"})
 public class PushApplication {
 
@@ -0,0 +1,59 @@
+package com.example.push.config;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.StrUtil;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.stereotype.Component;
+
+/**
+ * 当前 push 节点
+ */
+@Component
+public class PushNode {
+
+    private final String id;
+
+    private final Registration registration;
+
+    /**
+     * 未注册时的本机地址 host:server.port
+     */
+    private final String localAddress;
+
+    public PushNode(PushProperties pushProperties, ObjectProvider<Registration> registration,
+                    @Value("${server.port:8080}") int port) {
+        this.registration = registration.getIfAvailable();
+        this.localAddress = (this.registration != null ? this.registration.getHost() : NetUtil.getLocalhostStr()) + ":" + port;
+        String nodeId = pushProperties.getCluster().getNodeId();
+        //未配置时与注册中心中的实例地址保持一致, 便于按实例列表划分主题
+        this.id = StrUtil.isNotBlank(nodeId) ? nodeId : localAddress;
+    }
+
+    /**
+     * 注册中心中实例对应的节点 id
+     */
+    public static String id(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    /**
+     * 节点 id, 集群内唯一
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 注册中心中的实例地址, 与 {@link #id(ServiceInstance)} 一致, 不受 push.cluster.node-id 影响
+     */
+    public String getAddress() {
+        //注册中心在 web 服务启动后才填充端口, 之前按 server.port
+        if (registration != null && registration.getPort() > 0) {
+            return id(registration);
+        }
+        return localAddress;
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.push.config;
+
+import com.example.push.ws.ExecutionMode;
+import com.example.push.ws.OverflowPolicy;
+import com.example.push.ws.OverrunPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.zip.Deflater;
+
+/**
+ * push 模块配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "push")
+public class PushProperties {
+
+    /**
+     * 帧编解码实现: jackson(流式) / hutool
+     */
+    private String codec = "jackson";
+
+    /**
+     * 出站消息队列配置
+     */
+    private Outbound outbound = new Outbound();
+
+    /**
+     * handler 定时任务配置
+     */
+    private Scheduler scheduler = new Scheduler();
+
+    /**
+     * 压缩配置
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * 集群配置
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 心跳配置
+     */
+    private Heartbeat heartbeat = new Heartbeat();
+
+    /**
+     * 响应式 websocket 入口配置
+     */
+    private Reactive reactive = new Reactive();
+
+    /**
+     * 连接数上报和再平衡配置
+     */
+    private Balance balance = new Balance();
+
+    /**
+     * 客户端请求限流配置
+     */
+    private Limit limit = new Limit();
+
+    /**
+     * 事件推送配置
+     */
+    private Bus bus = new Bus();
+
+    @Data
+    public static class Outbound {
+
+        /**
+         * 单条消息发送超时时间(毫秒), 超时视为慢连接并关闭
+         */
+        private long sendTimeLimit = 10 * 1000;
+
+        /**
+         * 每个连接待发送消息的最大字节数
+         */
+        private int bufferSizeLimit = 512 * 1024;
+
+        /**
+         * 超出 bufferSizeLimit 时的处理策略
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.CONFLATE;
+
+        /**
+         * 发送线程数
+         */
+        private int writerThreads = Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    @Data
+    public static class Scheduler {
+
+        /**
+         * 执行 handler 定时任务的线程数
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 上一次任务未执行完时的处理策略
+         */
+        private OverrunPolicy overrunPolicy = OverrunPolicy.COALESCE;
+
+        /**
+         * 线程模式, VIRTUAL 时 handler 任务、数据加载和连接发送使用虚拟线程
+         */
+        private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+        /**
+         * PLATFORM 模式下并行加载主题数据的线程数
+         */
+        private int fetchThreads = Runtime.getRuntime().availableProcessors() * 4;
+
+        /**
+         * 每个周期等待主题加载的最长时间(毫秒), 超时的主题本周期不推送, 小于等于0时为 handler 的周期
+         */
+        private long fetchTimeout = 0;
+    }
+
+    @Data
+    public static class Compression {
+
+        /**
+         * 是否允许客户端协商 permessage-deflate, 作用于所有帧
+         */
+        private boolean permessageDeflate = true;
+
+        /**
+         * 二进制帧超过该字节数才压缩
+         */
+        private int threshold = 1024;
+
+        /**
+         * 二进制帧压缩级别 1-9
+         */
+        private int level = Deflater.BEST_SPEED;
+
+        /**
+         * 客户端二进制请求解压后的最大字节数, 超出时拒绝, 防止压缩炸弹; 默认与 reactive 端的最大帧相同
+         */
+        private int maxInflatedSize = 64 * 1024;
+    }
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * 连接存储: local 单节点 / redis 多节点, 通过 redis 转发其他节点的连接消息
+         */
+        private String store = "local";
+
+        /**
+         * 节点 id, 默认为 ip:端口
+         */
+        private String nodeId;
+
+        /**
+         * 发往其他节点的消息合并发送间隔(毫秒)
+         */
+        private long flushInterval = 20;
+
+        /**
+         * 每批最多合并的消息数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 是否多节点共享计算: 每个主题只由一个节点计算并通过 redis 广播, 按注册中心的实例列表划分
+         * 开启时 nodeId 需保持默认, 与注册中心中的实例地址一致
+         */
+        private boolean sharedCompute = false;
+
+        /**
+         * 共享计算时节点列表和主题登记的刷新间隔(毫秒), 登记的主题 3 个间隔未续期后失效
+         */
+        private long registryRefresh = 5000;
+    }
+
+    @Data
+    public static class Heartbeat {
+
+        /**
+         * 是否开启心跳检测
+         */
+        private boolean enabled = true;
+
+        /**
+         * 连接空闲多久后发送 ping(毫秒)
+         */
+        private long pingInterval = 25 * 1000;
+
+        /**
+         * 默认空闲超时(毫秒), 期间没有收到客户端任何消息(包括 pong)则关闭连接
+         * 客户端可以在连接地址中通过 idleTimeout 参数指定, 限制在 pingInterval * 2 与 maxIdleTimeout 之间
+         */
+        private long idleTimeout = 60 * 1000;
+
+        /**
+         * 客户端可指定的最大空闲超时(毫秒)
+         */
+        private long maxIdleTimeout = 5 * 60 * 1000;
+
+        /**
+         * 每秒最多关闭的超时连接数
+         */
+        private int reapBatch = 500;
+    }
+
+    @Data
+    public static class Reactive {
+
+        /**
+         * 是否在单独端口上开启基于 Reactor Netty 的 websocket 入口, 与 Tomcat 入口共用 handler 和连接存储
+         */
+        private boolean enabled = false;
+
+        /**
+         * 监听端口
+         */
+        private int port = 8083;
+
+        /**
+         * 每个连接交给 Netty 但还未写出的最大消息数, 写满后发送线程等待, 由出站队列按 overflowPolicy 处理
+         */
+        private int sendBuffer = 256;
+
+        /**
+         * 单帧最大字节数
+         */
+        private int maxFramePayloadLength = 64 * 1024;
+    }
+
+    @Data
+    public static class Balance {
+
+        /**
+         * 是否上报本节点连接数到 redis, 网关按连接数最少选择节点
+         */
+        private boolean report = false;
+
+        /**
+         * 上报间隔(毫秒), 连接数 3 个间隔未更新后失效
+         */
+        private long reportInterval = 5000;
+
+        /**
+         * 是否开启再平衡: 连接数超过平均值一定比例时断开部分连接, 提示客户端重连
+         */
+        private boolean rebalance = false;
+
+        /**
+         * 再平衡检查间隔(毫秒)
+         */
+        private long rebalanceInterval = 30 * 1000;
+
+        /**
+         * 超过平均值的比例, 超过后才再平衡
+         */
+        private double tolerance = 0.2;
+
+        /**
+         * 每次最多断开的连接数
+         */
+        private int maxShed = 200;
+
+        /**
+         * 提示客户端重连的最大随机等待(毫秒), 避免同时重连
+         */
+        private long reconnectDelay = 3000;
+    }
+
+    @Data
+    public static class Limit {
+
+        /**
+         * 每个连接每秒最多发送的请求帧数, 小于等于0不限制; 连接只在一个节点上, 只在本地计数
+         */
+        private double sessionRate = 20;
+
+        /**
+         * 每个连接允许的突发请求帧数
+         */
+        private long sessionBurst = 40;
+
+        /**
+         * 每个客户端(登录用户或 ip)在所有节点上每秒最多发送的请求帧数, 通过 redis 计数, 小于等于0不限制
+         */
+        private double clientRate = 0;
+
+        /**
+         * 每个客户端允许的突发请求帧数
+         */
+        private long clientBurst = 100;
+
+        /**
+         * 按客户端限流时每次从 redis 预取的令牌数, 在本节点发放完再访问 redis, 小于等于1时每帧访问一次 redis
+         */
+        private long clientLease = 10;
+
+        /**
+         * 预取令牌的有效期(毫秒), 过期未用完的作废
+         */
+        private long clientLeaseTtl = 200;
+
+        /**
+         * 每个连接最多订阅的主题数, 小于等于0不限制
+         */
+        private int maxTopics = 100;
+    }
+
+    @Data
+    public static class Bus {
+
+        /**
+         * 同一主题的合并窗口(毫秒): 空闲时的第一次推送立即发送, 窗口内的后续推送只在窗口结束时发送最新的一次, 0 不合并
+         * handler 可以按主题覆盖 conflationWindow
+         */
+        private long conflationWindow = 100;
+
+        /**
+         * 合并窗口定时精度(毫秒)
+         */
+        private long tick = 10;
+
+        /**
+         * 是否订阅 redis 频道 ws:bus:publish, 接收其他服务发布的推送数据
+         */
+        private boolean redisListen = false;
+    }
+}
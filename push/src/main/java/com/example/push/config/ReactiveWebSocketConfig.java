@@ -0,0 +1,77 @@
+package com.example.push.config;
+
+import com.example.push.ws.WebSocketFactory;
+import com.example.push.ws.WebSocketSessionStoreService;
+import com.example.push.ws.reactive.ReactiveWebSocketHandler;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.adapter.ReactorNettyWebSocketSession;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.WebsocketServerSpec;
+
+import java.net.URI;
+import java.util.Collections;
+
+/**
+ * 响应式 websocket 入口
+ * 在单独端口上启动 Reactor Netty, 空闲连接不占用线程, 适合单节点承载大量长连接;
+ * 与 Tomcat 入口使用相同的路径、handler、连接存储和心跳
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "push.reactive", name = "enabled", havingValue = "true")
+public class ReactiveWebSocketConfig {
+
+    @Bean
+    public ReactiveWebSocketHandler reactiveWebSocketHandler(@Lazy WebSocketSessionStoreService webSocketSessionStoreService,
+                                                             @Lazy WebSocketFactory webSocketFactory,
+                                                             PushProperties pushProperties) {
+        return new ReactiveWebSocketHandler(webSocketSessionStoreService, webSocketFactory, pushProperties);
+    }
+
+    @Bean(destroyMethod = "disposeNow")
+    public DisposableServer reactiveWebSocketServer(ReactiveWebSocketHandler reactiveWebSocketHandler,
+                                                    PushProperties pushProperties) {
+        PushProperties.Reactive reactive = pushProperties.getReactive();
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+        WebsocketServerSpec spec = WebsocketServerSpec.builder()
+                .maxFramePayloadLength(reactive.getMaxFramePayloadLength())
+                .compress(pushProperties.getCompression().isPermessageDeflate())
+                .build();
+        DisposableServer server = HttpServer.create()
+                .port(reactive.getPort())
+                .route(routes -> routes.get(WebSocketConfig.PATH, (request, response) ->
+                        response.sendWebsocket((in, out) -> {
+                            //响应式入口不经过网关, 客户端地址取连接的远端地址, 按 ip 限流时才能区分客户端
+                            HandshakeInfo info = new HandshakeInfo(uri(request), headers(request), Mono.empty(), null,
+                                    request.remoteAddress(), Collections.emptyMap(), null);
+                            return reactiveWebSocketHandler.handle(new ReactorNettyWebSocketSession(
+                                    in, out, info, bufferFactory, reactive.getMaxFramePayloadLength()));
+                        }, spec)))
+                .bindNow();
+        log.info("响应式 websocket 入口启动, 端口: {}", server.port());
+        return server;
+    }
+
+    private static URI uri(HttpServerRequest request) {
+        String host = request.requestHeaders().get(HttpHeaderNames.HOST, "localhost");
+        return URI.create("ws://" + host + request.uri());
+    }
+
+    private static HttpHeaders headers(HttpServerRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        request.requestHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
+        return headers;
+    }
+}
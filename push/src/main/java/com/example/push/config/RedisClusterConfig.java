@@ -0,0 +1,29 @@
+package com.example.push.config;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 多节点模式下节点间通过 redis 发布/订阅通信, 开启 push.bus.redis-listen 时也通过 redis 频道接收推送事件
+ * 各组件在启动时向容器注册自己的频道
+ */
+@Configuration
+@ConditionalOnExpression("'${push.cluster.store:local}' == 'redis' or ${push.cluster.shared-compute:false} or ${push.bus.redis-listen:false}")
+public class RedisClusterConfig {
+
+    @Bean
+    public RedisMessageListenerContainer pushRedisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        //单线程处理, 保证同一频道的消息按发布顺序推送
+        container.setTaskExecutor(Executors.newSingleThreadExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("ws-redis-").setDaemon(true).build()));
+        return container;
+    }
+}
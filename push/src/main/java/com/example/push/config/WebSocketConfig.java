@@ -0,0 +1,79 @@
+package com.example.push.config;
+
+import com.example.push.ws.SessionIdInterceptor;
+import com.example.push.ws.WebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    /**
+     * websocket 连接地址
+     */
+    public static final String PATH = "/ws";
+
+    private final WebSocketHandler webSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(webSocketHandler, PATH)
+                .addInterceptors(new SessionIdInterceptor())
+                .setAllowedOriginPatterns("*");
+    }
+
+    /**
+     * 关闭 permessage-deflate
+     * Tomcat 握手时自行协商扩展, 只能在请求中隐藏客户端的 Sec-WebSocket-Extensions
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "push.compression", name = "permessage-deflate", havingValue = "false")
+    public FilterRegistrationBean<OncePerRequestFilter> disablePermessageDeflateFilter() {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                chain.doFilter(new NoExtensionsRequest(request), response);
+            }
+        });
+        registration.addUrlPatterns(PATH);
+        return registration;
+    }
+
+    private static class NoExtensionsRequest extends HttpServletRequestWrapper {
+
+        private static final String EXTENSIONS = "Sec-WebSocket-Extensions";
+
+        private NoExtensionsRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return EXTENSIONS.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return EXTENSIONS.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+    }
+}
@@ -14,15 +14,75 @@ public interface WsConstants {
     /**
      * 常量,订阅类型
      * 请求参数: {"sub":"market.symbol.depth","data":{ "relationId":3,"pageSize":14,"accuracy":"8"}}
+     * 批量订阅: {"sub":["market.btc.depth","market.eth.depth"],"data":{...}}
      */
     String subType = "sub";
 
     /**
      * 常量,取消订阅类型
-     * 请求参数: {"unSub":"market.symbol.depth"}
+     * 请求参数: {"unSub":"market.symbol.depth"}, 同样支持数组
      */
     String unSubType = "unSub";
 
+    /**
+     * 推送数据格式, 订阅时指定: json(默认) / cbor
+     * 请求参数: {"sub":"market.symbol.depth","format":"cbor"}
+     * cbor 格式推送为二进制帧, 首字节 0 表示未压缩, 1 表示 deflate 压缩, 之后为 CBOR 数据;
+     * 客户端也可以用同样格式的二进制帧发送请求
+     */
+    String format = "format";
+
+    /**
+     * 常量,请求重新发送全量数据, 增量推送的客户端发现 seq 不连续时发送
+     * 请求参数: {"resync":"market.symbol.depth"}, 同样支持数组
+     */
+    String resyncType = "resync";
+
+    /**
+     * 应用层心跳, 浏览器无法发送 ping 帧时使用
+     * 请求参数: {"ping":1664000000000}, 回复: {"pong":1664000000000}
+     */
+    String ping = "ping";
+
+    String pong = "pong";
+
+    /**
+     * 服务端要求重连, 客户端等待 delay 毫秒后重新连接, 由网关分配到连接较少的节点
+     * 推送: {"reconnect":{"delay":1500}}, 随后服务端以 1012 关闭连接
+     */
+    String reconnect = "reconnect";
+
+    String delay = "delay";
+
+    /**
+     * 请求被拒绝
+     * 发送过快: {"error":"rateLimited"}, 被拒绝的请求直接丢弃, 持续超速时每秒最多通知一次
+     * 订阅主题数超出上限: {"error":"topicLimit","topic":"market.btc.depth"}
+     */
+    String error = "error";
+
+    String RATE_LIMITED = "rateLimited";
+
+    String TOPIC_LIMIT = "topicLimit";
+
+    /**
+     * 增量推送帧:
+     * 全量: {"topic":"market.btc.depth","seq":10,"type":"snapshot","data":{...}}
+     * 增量: {"topic":"market.btc.depth","seq":11,"type":"delta","data":{变化的字段},"removed":["删除的字段"]}
+     * 客户端收到 snapshot 后, 按 seq 连续应用 delta; seq 小于等于当前值的 delta 直接忽略
+     */
+    String topic = "topic";
+
+    String seq = "seq";
+
+    String type = "type";
+
+    String removed = "removed";
+
+    String SNAPSHOT = "snapshot";
+
+    String DELTA = "delta";
+
     /**
      * 测试订阅 {"sub":"test_Sub", "data":{"xx":xx, "yy":"yy"}}
      */
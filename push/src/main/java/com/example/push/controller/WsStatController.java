@@ -0,0 +1,41 @@
+package com.example.push.controller;
+
+import com.example.push.ws.HandlerStat;
+import com.example.push.ws.PushScheduler;
+import com.example.push.ws.SessionStat;
+import com.example.push.ws.WebSocketSessionStoreService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+
+@RestController
+@RequestMapping("stat")
+@RequiredArgsConstructor
+public class WsStatController {
+
+    private final WebSocketSessionStoreService webSocketSessionStoreService;
+
+    private final PushScheduler pushScheduler;
+
+    /**
+     * 各连接待发送消息数和丢弃数, 按待发送字节数倒序
+     */
+    @GetMapping("sessions")
+    public List<SessionStat> sessions() {
+        List<SessionStat> stats = webSocketSessionStoreService.stats();
+        stats.sort(Comparator.comparingLong(SessionStat::getBufferSize).reversed());
+        return stats;
+    }
+
+    /**
+     * 各 handler 定时任务执行耗时、延迟和超时次数
+     */
+    @GetMapping("handlers")
+    public List<HandlerStat> handlers() {
+        return pushScheduler.stats();
+    }
+}
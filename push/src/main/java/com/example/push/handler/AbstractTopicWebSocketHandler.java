@@ -0,0 +1,443 @@
+package com.example.push.handler;
+
+import cn.hutool.extra.spring.SpringUtil;
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.example.push.config.PushProperties;
+import com.example.push.constant.WsConstants;
+import com.example.push.ws.FrameCodec;
+import com.example.push.ws.PushBus;
+import com.example.push.ws.PushExecutors;
+import com.example.push.ws.PushMessage;
+import com.example.push.ws.PushMetrics;
+import com.example.push.ws.Topic;
+import com.example.push.ws.TopicCoordinator;
+import com.example.push.ws.TopicGroup;
+import com.example.push.ws.TopicSubscriptionStore;
+import com.example.push.ws.WebSocketSessionStoreService;
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanNameAware;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 按主题推送的 handler
+ * 订阅主题和参数相同的连接归为一组, 每个周期每组只调用一次 {@link #load(Topic)} 并序列化一次,
+ * 同一条消息发送给组内所有连接
+ * <p>
+ * {@link #deltaMode()} 开启后按 {@link WsConstants#topic} 中的格式增量推送:
+ * 数据未变化时不推送, 变化时只推送变化的字段, 订阅时、客户端请求 resync 时以及每 {@link #snapshotInterval()} 个周期推送全量
+ * <p>
+ * 除定时任务外, 数据变化时可以通过 {@link #publish(Topic, JSON)} 或 {@link PushBus} 主动推送,
+ * 同一主题在 {@link #conflationWindow(Topic)} 内的多次推送合并为一次; 只主动推送的 handler 将 {@link #period()} 设为 0
+ */
+@Slf4j
+public abstract class AbstractTopicWebSocketHandler implements BaseWebSocketHandler, BeanNameAware {
+
+    /**
+     * 订阅, 连接关闭时由 WebSocketFactory 通知取消
+     */
+    private final TopicSubscriptionStore subscriptionStore = new TopicSubscriptionStore();
+
+    /**
+     * handler key, 即 bean 名称
+     */
+    private String key;
+
+    /**
+     * 正在加载的主题, 跨周期保留
+     */
+    private final Set<Topic> loading = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 每个周期推送的连接数, 首次执行任务时注册指标
+     */
+    private volatile DistributionSummary fanout;
+
+    /**
+     * 根据订阅主题和参数计算推送数据
+     *
+     * @param topic 订阅主题, {@link Topic#getParam()} 为订阅参数
+     * @return 推送数据, 为null时本周期不推送
+     */
+    protected abstract JSON load(Topic topic);
+
+    /**
+     * 是否增量推送, 适合大部分时间不变的数据
+     */
+    protected boolean deltaMode() {
+        return false;
+    }
+
+    /**
+     * 增量推送时每隔多少个周期推送一次全量
+     */
+    protected int snapshotInterval() {
+        return 60;
+    }
+
+    /**
+     * 主动推送的合并窗口(毫秒), 默认为 push.bus.conflation-window, 0 不合并
+     *
+     * @param topic 推送的主题
+     */
+    protected long conflationWindow(Topic topic) {
+        return SpringUtil.getBean(PushProperties.class).getBus().getConflationWindow();
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.key = name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public void connect(String sessionId, JSONObject json) {
+        connect(sessionId, key, json);
+    }
+
+    @Override
+    public void connect(String sessionId, String topic, JSONObject json) {
+        log.info("ws连接，topic:{}, SessionId:{}", topic, sessionId);
+        TopicGroup group = subscriptionStore.subscribe(sessionId, Topic.of(topic, json));
+        //订阅后，立即发送一次消息
+        if (deltaMode()) {
+            sendSnapshot(sessionId, group);
+            return;
+        }
+        JSON payload = load(group.getTopic());
+        if (payload != null) {
+            this.send(sessionId, payload);
+        }
+    }
+
+    @Override
+    public void disconnect(String sessionId) {
+        log.info("ws断开连接，key:{}, SessionId:{}", key, sessionId);
+        subscriptionStore.unsubscribe(sessionId);
+    }
+
+    @Override
+    public void disconnect(String sessionId, String topic) {
+        log.info("ws取消订阅，topic:{}, SessionId:{}", topic, sessionId);
+        subscriptionStore.unsubscribe(sessionId, topic);
+    }
+
+    @Override
+    public void resync(String sessionId, String topic) {
+        TopicGroup group = subscriptionStore.group(sessionId, topic);
+        if (group != null && deltaMode()) {
+            sendSnapshot(sessionId, group);
+        }
+    }
+
+    @Override
+    public void task() {
+        WebSocketSessionStoreService sessionStoreService = SpringUtil.getBean(WebSocketSessionStoreService.class);
+        FrameCodec frameCodec = SpringUtil.getBean(FrameCodec.class);
+        TopicCoordinator coordinator = SpringUtil.getBean(TopicCoordinator.class);
+        Executor fetcher = SpringUtil.getBean(PushExecutors.class).getFetcher();
+        PushMetrics metrics = SpringUtil.getBean(PushMetrics.class);
+        DistributionSummary fanout = fanout();
+        long timeout = fetchTimeout();
+        long deadline = System.currentTimeMillis() + timeout;
+        LongAdder delivered = new LongAdder();
+        Collection<TopicGroup> groups = subscriptionStore.groups();
+        coordinator.register(key, groups.stream().map(TopicGroup::getTopic).collect(Collectors.toList()));
+        Map<Topic, JSON> computed = new ConcurrentHashMap<>();
+        Map<Topic, CompletableFuture<Void>> fetches = new HashMap<>();
+        for (TopicGroup group : groups) {
+            //由其他节点计算的主题等待广播
+            if (!coordinator.owns(key, group.getTopic())) {
+                continue;
+            }
+            fetch(group.getTopic(), fetches, fetcher, () -> {
+                JSON payload = load(group.getTopic());
+                //超时后才返回的数据已过时, 丢弃
+                if (payload != null && System.currentTimeMillis() <= deadline) {
+                    computed.put(group.getTopic(), payload);
+                    delivered.add(deliver(group, payload, sessionStoreService, frameCodec, metrics));
+                }
+            });
+        }
+        //其他节点订阅、本节点负责计算的主题
+        for (Topic topic : coordinator.assigned(key)) {
+            if (subscriptionStore.group(topic) != null) {
+                continue;
+            }
+            fetch(topic, fetches, fetcher, () -> {
+                JSON payload = load(topic);
+                if (payload != null && System.currentTimeMillis() <= deadline) {
+                    computed.put(topic, payload);
+                }
+            });
+        }
+        //各主题并行加载, 最多等待 timeout, 未完成的主题本周期不推送
+        try {
+            CompletableFuture.allOf(fetches.values().toArray(new CompletableFuture[0]))
+                    .orTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .join();
+        } catch (CompletionException e) {
+            List<Topic> stragglers = new ArrayList<>();
+            fetches.forEach((topic, fetch) -> {
+                if (!fetch.isDone()) {
+                    stragglers.add(topic);
+                }
+            });
+            log.warn("handler:{} {} 个主题加载超过 {}ms, 本周期不推送: {}", key, stragglers.size(), timeout,
+                    stragglers.subList(0, Math.min(stragglers.size(), 10)));
+        }
+        fanout.record(delivered.sum());
+        coordinator.publish(key, computed);
+    }
+
+    /**
+     * 异步加载一个主题; 上一次加载还未返回的主题跳过, 避免卡住的上游调用越积越多
+     */
+    private void fetch(Topic topic, Map<Topic, CompletableFuture<Void>> fetches, Executor fetcher, Runnable task) {
+        if (!loading.add(topic)) {
+            log.debug("主题上次加载未完成, 跳过: {}", topic);
+            return;
+        }
+        fetches.put(topic, CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("主题推送异常: {}", topic, e);
+            } finally {
+                loading.remove(topic);
+            }
+        }, fetcher));
+    }
+
+    /**
+     * 每个周期等待主题加载的最长时间, 默认为 push.scheduler.fetch-timeout, 未配置时为定时任务周期
+     */
+    protected long fetchTimeout() {
+        long timeout = SpringUtil.getBean(PushProperties.class).getScheduler().getFetchTimeout();
+        return timeout > 0 ? timeout : Math.max(period(), 1);
+    }
+
+    /**
+     * 数据变化时主动推送给以该参数订阅主题的连接, 不等待定时任务
+     * 空闲时立即发送并开始合并窗口, 窗口内的后续推送只在窗口结束时发送最新的一次
+     *
+     * @return 没有连接订阅时返回false
+     */
+    public boolean publish(Topic topic, JSON payload) {
+        TopicGroup group = subscriptionStore.group(topic);
+        if (group == null) {
+            return false;
+        }
+        publish(group, payload);
+        return true;
+    }
+
+    /**
+     * 主动推送给订阅该主题的所有连接, 不区分订阅参数
+     *
+     * @param name 主题名
+     * @return 推送的主题分组数
+     */
+    public int publish(String name, JSON payload) {
+        int published = 0;
+        for (TopicGroup group : subscriptionStore.groups()) {
+            if (group.getTopic().getName().equals(name)) {
+                publish(group, payload);
+                published++;
+            }
+        }
+        return published;
+    }
+
+    /**
+     * 接收其他节点计算的数据, 推送给本节点订阅的连接
+     */
+    public void receive(Map<Topic, JSON> payloads) {
+        WebSocketSessionStoreService sessionStoreService = SpringUtil.getBean(WebSocketSessionStoreService.class);
+        FrameCodec frameCodec = SpringUtil.getBean(FrameCodec.class);
+        PushMetrics metrics = SpringUtil.getBean(PushMetrics.class);
+        int delivered = 0;
+        for (Map.Entry<Topic, JSON> entry : payloads.entrySet()) {
+            Topic topic = entry.getKey();
+            TopicGroup group = subscriptionStore.group(topic);
+            if (group == null) {
+                continue;
+            }
+            try {
+                delivered += deliver(group, entry.getValue(), sessionStoreService, frameCodec, metrics);
+            } catch (Exception e) {
+                log.error("主题推送异常: {}", topic, e);
+            }
+        }
+        fanout().record(delivered);
+    }
+
+    /**
+     * @return 推送的连接数
+     */
+    private int deliver(TopicGroup group, JSON payload, WebSocketSessionStoreService sessionStoreService,
+                        FrameCodec frameCodec, PushMetrics metrics) {
+        if (!deltaMode()) {
+            //每组每种格式只序列化一次
+            sessionStoreService.sendMessage(group, new PushMessage(payload, frameCodec, metrics, group.getTopic()));
+            return group.getSessionIds().size();
+        }
+        synchronized (group) {
+            JSON frame = nextFrame(group, payload);
+            if (frame == null) {
+                return 0;
+            }
+            //增量帧不能合并, 否则客户端会出现 seq 不连续
+            sessionStoreService.sendMessage(group, new PushMessage(frame, frameCodec, metrics, null));
+            return group.getSessionIds().size();
+        }
+    }
+
+    private void publish(TopicGroup group, JSON payload) {
+        PushMetrics metrics = SpringUtil.getBean(PushMetrics.class);
+        long window = conflationWindow(group.getTopic());
+        synchronized (group) {
+            long now = System.currentTimeMillis();
+            if (window > 0 && now < group.getWindowEnd()) {
+                //窗口内只保留最新数据, 第一次时安排窗口结束时发送
+                if (group.getPending() == null) {
+                    SpringUtil.getBean(PushBus.class).schedule(() -> flush(group, window), group.getWindowEnd() - now);
+                } else {
+                    metrics.busConflated();
+                }
+                group.setPending(payload);
+                return;
+            }
+            group.setWindowEnd(now + window);
+            deliver(group, payload, SpringUtil.getBean(WebSocketSessionStoreService.class),
+                    SpringUtil.getBean(FrameCodec.class), metrics);
+            metrics.busDelivered();
+        }
+    }
+
+    /**
+     * 合并窗口结束, 发送窗口内的最新数据并开始下一个窗口
+     */
+    private void flush(TopicGroup group, long window) {
+        PushMetrics metrics = SpringUtil.getBean(PushMetrics.class);
+        synchronized (group) {
+            JSON payload = group.getPending();
+            if (payload == null) {
+                return;
+            }
+            group.setPending(null);
+            group.setWindowEnd(System.currentTimeMillis() + window);
+            try {
+                deliver(group, payload, SpringUtil.getBean(WebSocketSessionStoreService.class),
+                        SpringUtil.getBean(FrameCodec.class), metrics);
+                metrics.busDelivered();
+            } catch (Exception e) {
+                log.error("主题推送异常: {}", group.getTopic(), e);
+            }
+        }
+    }
+
+    private DistributionSummary fanout() {
+        DistributionSummary summary = fanout;
+        if (summary == null) {
+            synchronized (this) {
+                summary = fanout;
+                if (summary == null) {
+                    PushMetrics metrics = SpringUtil.getBean(PushMetrics.class);
+                    metrics.subscriptions(key, subscriptionStore,
+                            TopicSubscriptionStore::subscriptions, TopicSubscriptionStore::topics);
+                    summary = metrics.fanout(key);
+                    fanout = summary;
+                }
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * 发送当前全量数据给单个连接, 不改变 seq
+     */
+    private void sendSnapshot(String sessionId, TopicGroup group) {
+        synchronized (group) {
+            if (group.getLastPayload() == null) {
+                JSON payload = load(group.getTopic());
+                if (payload == null) {
+                    return;
+                }
+                group.setLastPayload(payload);
+                group.setSeq(group.getSeq() + 1);
+                group.setTicks(0);
+            }
+            this.send(sessionId, envelope(group, WsConstants.SNAPSHOT, group.getLastPayload()));
+        }
+    }
+
+    /**
+     * 根据上次推送的数据生成本周期的帧
+     *
+     * @return 数据未变化且不需要推送全量时返回null
+     */
+    private JSON nextFrame(TopicGroup group, JSON payload) {
+        JSON last = group.getLastPayload();
+        int ticks = group.getTicks() + 1;
+        boolean snapshot = last == null || ticks >= snapshotInterval()
+                || !(last instanceof JSONObject && payload instanceof JSONObject);
+        if (!snapshot && Objects.equals(last, payload)) {
+            group.setTicks(ticks);
+            return null;
+        }
+        group.setLastPayload(payload);
+        group.setSeq(group.getSeq() + 1);
+        if (snapshot) {
+            group.setTicks(0);
+            return envelope(group, WsConstants.SNAPSHOT, payload);
+        }
+        group.setTicks(ticks);
+        JSONObject current = (JSONObject) payload;
+        JSONObject previous = (JSONObject) last;
+        JSONObject changed = new JSONObject();
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            if (!Objects.equals(entry.getValue(), previous.get(entry.getKey()))) {
+                changed.set(entry.getKey(), entry.getValue());
+            }
+        }
+        JSONArray removed = new JSONArray();
+        for (String field : previous.keySet()) {
+            if (!current.containsKey(field)) {
+                removed.add(field);
+            }
+        }
+        JSONObject frame = envelope(group, WsConstants.DELTA, changed);
+        if (!removed.isEmpty()) {
+            frame.set(WsConstants.removed, removed);
+        }
+        return frame;
+    }
+
+    private static JSONObject envelope(TopicGroup group, String type, JSON data) {
+        return new JSONObject()
+                .set(WsConstants.topic, group.getTopic().getName())
+                .set(WsConstants.seq, group.getSeq())
+                .set(WsConstants.type, type)
+                .set(WsConstants.data, data);
+    }
+}
@@ -20,11 +20,45 @@ public interface BaseWebSocketHandler {
      */
     void disconnect(String sessionId);
 
+    /**
+     * 订阅指定主题, 通配符 handler 可以根据 topic 区分具体订阅
+     * @param sessionId
+     * @param topic 主题名
+     * @param json
+     */
+    default void connect(String sessionId, String topic, JSONObject json) {
+        connect(sessionId, json);
+    }
+
+    /**
+     * 取消订阅指定主题
+     * @param sessionId
+     * @param topic 主题名
+     */
+    default void disconnect(String sessionId, String topic) {
+        disconnect(sessionId);
+    }
+
+    /**
+     * 客户端请求重新发送全量数据, 只有增量推送的 handler 需要实现
+     * @param sessionId
+     * @param topic 主题名
+     */
+    default void resync(String sessionId, String topic) {
+    }
+
     /**
      * 定时任务定时发送数据给前端
      */
     void task();
 
+    /**
+     * 定时任务执行周期(毫秒), 支持小于1秒; 小于等于0时不定时执行, 只通过 PushBus 主动推送
+     */
+    default long period() {
+        return 1000;
+    }
+
     default boolean send(String sessionId, JSON json){
         WebSocketSessionStoreService sessionStoreService = SpringUtil.getBean(WebSocketSessionStoreService.class);
         return sessionStoreService.sendMessage(sessionId, json);
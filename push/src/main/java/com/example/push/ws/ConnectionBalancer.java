@@ -0,0 +1,129 @@
+package com.example.push.ws;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import com.example.push.config.PushNode;
+import com.example.push.config.PushProperties;
+import com.example.push.constant.WsConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接数上报和再平衡
+ * 定时把本节点连接数写入 redis 的 ws:connections:{host}:{port}, 与注册中心中的实例地址一致, 网关据此把新连接分配到连接最少的节点;
+ * 开启再平衡后, 本节点连接数超过所有节点平均值一定比例时, 提示部分客户端重连, 由网关重新分配
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "push.balance", name = "report", havingValue = "true")
+public class ConnectionBalancer {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final WebSocketSessionStoreService webSocketSessionStoreService;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final PushNode pushNode;
+
+    private final PushProperties.Balance balance;
+
+    private final String serviceId;
+
+    private ScheduledExecutorService scheduler;
+
+    public ConnectionBalancer(StringRedisTemplate stringRedisTemplate,
+                              @Lazy WebSocketSessionStoreService webSocketSessionStoreService,
+                              DiscoveryClient discoveryClient, PushNode pushNode, PushProperties pushProperties,
+                              @Value("${spring.application.name}") String serviceId) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.webSocketSessionStoreService = webSocketSessionStoreService;
+        this.discoveryClient = discoveryClient;
+        this.pushNode = pushNode;
+        this.balance = pushProperties.getBalance();
+        this.serviceId = serviceId;
+    }
+
+    /**
+     * 节点连接数的 key, 网关使用相同格式读取
+     *
+     * @param address 实例地址 host:port
+     */
+    public static String key(String address) {
+        return StrUtil.format(WsConstants.FORMAT, "connections", address);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("ws-balance-").setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(this::report, 0, balance.getReportInterval(), TimeUnit.MILLISECONDS);
+        if (balance.isRebalance()) {
+            scheduler.scheduleWithFixedDelay(this::rebalance, balance.getRebalanceInterval(),
+                    balance.getRebalanceInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        //下线后不再参与分配
+        stringRedisTemplate.delete(key(pushNode.getAddress()));
+    }
+
+    private void report() {
+        try {
+            stringRedisTemplate.opsForValue().set(key(pushNode.getAddress()), String.valueOf(webSocketSessionStoreService.count()),
+                    balance.getReportInterval() * 3, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("上报连接数失败", e);
+        }
+    }
+
+    private void rebalance() {
+        try {
+            List<String> keys = new ArrayList<>();
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                keys.add(key(PushNode.id(instance)));
+            }
+            if (keys.size() <= 1) {
+                return;
+            }
+            //未上报的节点按 0 计算, 新启动的节点优先接收重连
+            long total = 0;
+            List<String> counts = stringRedisTemplate.opsForValue().multiGet(keys);
+            for (String count : counts == null ? new ArrayList<String>() : counts) {
+                total += NumberUtil.isLong(count) ? Long.parseLong(count) : 0;
+            }
+            double average = (double) total / keys.size();
+            int current = webSocketSessionStoreService.count();
+            if (current <= average * (1 + balance.getTolerance())) {
+                return;
+            }
+            int excess = (int) Math.min(current - Math.ceil(average), balance.getMaxShed());
+            //每个连接随机等待, 避免同时重连
+            int shed = webSocketSessionStoreService.shed(excess, () -> new JSONObject().set(WsConstants.reconnect,
+                    new JSONObject().set(WsConstants.delay, RandomUtil.randomLong(0, balance.getReconnectDelay() + 1))));
+            log.info("连接数再平衡: 当前 {}, 平均 {}, 断开 {}", current, String.format("%.1f", average), shed);
+        } catch (Exception e) {
+            log.error("连接数再平衡失败", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.push.ws;
+
+/**
+ * handler 任务、数据加载和连接发送使用的线程类型
+ */
+public enum ExecutionMode {
+
+    /**
+     * 平台线程, 固定大小的线程池
+     */
+    PLATFORM,
+
+    /**
+     * 虚拟线程, 每个任务一个线程, 需要 JDK 21+, 低版本自动回退为 PLATFORM
+     */
+    VIRTUAL
+}
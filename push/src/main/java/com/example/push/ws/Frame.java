@@ -0,0 +1,44 @@
+package com.example.push.ws;
+
+import cn.hutool.json.JSONObject;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端请求帧, 只包含用到的字段
+ */
+@Data
+public class Frame {
+
+    /**
+     * 订阅主题
+     */
+    private List<String> sub = new ArrayList<>(1);
+
+    /**
+     * 取消订阅主题
+     */
+    private List<String> unSub = new ArrayList<>(1);
+
+    /**
+     * 请求全量数据的主题
+     */
+    private List<String> resync = new ArrayList<>(0);
+
+    /**
+     * 订阅参数, 不为null
+     */
+    private JSONObject data = new JSONObject();
+
+    /**
+     * 推送数据格式, 为null时不修改连接当前格式
+     */
+    private PayloadFormat format;
+
+    /**
+     * 应用层心跳时间戳, 不为null时回复 pong
+     */
+    private Long ping;
+}
@@ -0,0 +1,41 @@
+package com.example.push.ws;
+
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * websocket 帧编解码
+ * 通过 push.codec 选择实现: jackson(默认, 流式) / hutool
+ */
+public interface FrameCodec {
+
+    /**
+     * 解析客户端文本请求
+     *
+     * @param text 请求文本
+     * @throws Exception 不是合法的请求
+     */
+    Frame decode(String text) throws Exception;
+
+    /**
+     * 解析客户端二进制请求, 格式见 {@link PayloadFormat#CBOR}
+     *
+     * @param bytes 请求内容
+     * @throws Exception 不是合法的请求
+     */
+    Frame decode(byte[] bytes) throws Exception;
+
+    /**
+     * 编码推送数据, 返回的消息可以发送给多个连接
+     *
+     * @param payload 推送数据, Hutool JSON 或普通对象
+     * @param format  数据格式
+     */
+    WebSocketMessage<?> encode(Object payload, PayloadFormat format);
+
+    /**
+     * 编码为文本 JSON
+     */
+    default WebSocketMessage<?> encode(Object payload) {
+        return encode(payload, PayloadFormat.JSON);
+    }
+}
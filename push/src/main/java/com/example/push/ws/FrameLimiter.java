@@ -0,0 +1,102 @@
+package com.example.push.ws;
+
+import cn.hutool.core.util.StrUtil;
+import com.example.common.limit.TokenBucket;
+import com.example.common.limit.TokenBucketLimiter;
+import com.example.push.config.PushProperties;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 客户端请求帧限流
+ * 每个连接使用本地令牌桶; 按客户端限流时通过 redis 在所有节点间共享, 客户端为登录用户, 未登录时为 ip
+ */
+@Component
+public class FrameLimiter {
+
+    private static final String BUCKET = "ws.limit.bucket";
+
+    private static final String CLIENT = "ws.limit.client";
+
+    private static final String NOTIFIED = "ws.limit.notified";
+
+    /**
+     * 被限流时通知客户端的最小间隔(毫秒), 与令牌按秒补充一致
+     */
+    private static final long NOTIFY_INTERVAL = 1000;
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final PushProperties.Limit properties;
+
+    private final TokenBucketLimiter tokenBucketLimiter;
+
+    public FrameLimiter(PushProperties pushProperties, @Lazy TokenBucketLimiter tokenBucketLimiter) {
+        this.properties = pushProperties.getLimit();
+        this.tokenBucketLimiter = tokenBucketLimiter;
+    }
+
+    /**
+     * 收到请求帧
+     *
+     * @return false 发送过快, 丢弃该帧
+     */
+    public boolean allow(WebSocketSession session) {
+        if (properties.getSessionRate() > 0) {
+            TokenBucket bucket = (TokenBucket) session.getAttributes().computeIfAbsent(BUCKET,
+                    k -> new TokenBucket(properties.getSessionRate(), properties.getSessionBurst()));
+            if (!bucket.tryAcquire(1)) {
+                return false;
+            }
+        }
+        if (properties.getClientRate() > 0) {
+            return tokenBucketLimiter.tryAcquire("ws:" + client(session), properties.getClientRate(), properties.getClientBurst(),
+                    properties.getClientLease(), properties.getClientLeaseTtl());
+        }
+        return true;
+    }
+
+    /**
+     * 帧被限流后是否通知客户端, 每个连接每 {@link #NOTIFY_INTERVAL} 最多一次,
+     * 避免持续超速的客户端每发一帧就换来一个错误帧
+     */
+    public boolean notifyLimited(WebSocketSession session) {
+        AtomicLong notified = (AtomicLong) session.getAttributes().computeIfAbsent(NOTIFIED, k -> new AtomicLong());
+        long now = System.currentTimeMillis();
+        long last = notified.get();
+        return now - last >= NOTIFY_INTERVAL && notified.compareAndSet(last, now);
+    }
+
+    /**
+     * 是否还可以订阅新主题
+     *
+     * @param subscribed 已订阅的主题数
+     */
+    public boolean allowTopic(int subscribed) {
+        return properties.getMaxTopics() <= 0 || subscribed < properties.getMaxTopics();
+    }
+
+    /**
+     * 登录用户名, 未登录时为客户端 ip; 经过网关时取网关追加在 X-Forwarded-For 末尾的地址
+     */
+    private static String client(WebSocketSession session) {
+        return (String) session.getAttributes().computeIfAbsent(CLIENT, k -> {
+            Principal principal = session.getPrincipal();
+            if (principal != null && StrUtil.isNotEmpty(principal.getName())) {
+                return "user:" + principal.getName();
+            }
+            //前面的地址可以由客户端伪造, 只有最后一个是网关追加的
+            String forwarded = StrUtil.join(",", session.getHandshakeHeaders().getOrEmpty(FORWARDED_FOR));
+            if (StrUtil.isNotBlank(forwarded)) {
+                return "ip:" + forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+            }
+            InetSocketAddress address = session.getRemoteAddress();
+            return "ip:" + (address == null ? "unknown" : address.getAddress().getHostAddress());
+        });
+    }
+}
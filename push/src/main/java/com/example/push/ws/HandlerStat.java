@@ -0,0 +1,49 @@
+package com.example.push.ws;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * handler 定时任务执行状态
+ */
+@Data
+@AllArgsConstructor
+public class HandlerStat {
+
+    private String key;
+
+    /**
+     * 执行周期(毫秒)
+     */
+    private long period;
+
+    /**
+     * 执行次数
+     */
+    private long runs;
+
+    /**
+     * 到点时上一次未执行完的次数
+     */
+    private long overruns;
+
+    /**
+     * 最近一次执行耗时(毫秒)
+     */
+    private long lastDuration;
+
+    /**
+     * 最大执行耗时(毫秒)
+     */
+    private long maxDuration;
+
+    /**
+     * 最近一次实际开始时间相对计划时间的延迟(毫秒)
+     */
+    private long lastLag;
+
+    /**
+     * 最大延迟(毫秒)
+     */
+    private long maxLag;
+}
@@ -0,0 +1,121 @@
+package com.example.push.ws;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.NumberUtil;
+import com.example.push.config.PushProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 心跳检测
+ * 每个连接在时间轮上只有一个检查任务: 空闲超过 pingInterval 发送 ping, 超过空闲超时判定为僵尸连接,
+ * 僵尸连接由单独的线程每秒分批关闭, 关闭后在连接关闭回调中取消订阅并移除
+ */
+@Slf4j
+@Component
+public class HeartbeatMonitor {
+
+    /**
+     * 连接地址中指定空闲超时的参数名, 如 /ws?idleTimeout=120000
+     */
+    private static final String IDLE_TIMEOUT = "idleTimeout";
+
+    private final PushProperties.Heartbeat heartbeat;
+
+    private final Queue<OutboundSession> zombies = new ConcurrentLinkedQueue<>();
+
+    private TimerWheel wheel;
+
+    private ScheduledExecutorService reaper;
+
+    public HeartbeatMonitor(PushProperties pushProperties) {
+        this.heartbeat = pushProperties.getHeartbeat();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!heartbeat.isEnabled()) {
+            return;
+        }
+        wheel = new TimerWheel("ws-heartbeat-", 1000, 512);
+        reaper = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("ws-reaper-").setDaemon(true).build());
+        reaper.scheduleWithFixedDelay(this::reap, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (wheel != null) {
+            wheel.stop();
+            reaper.shutdownNow();
+        }
+    }
+
+    /**
+     * 开始检测连接
+     */
+    public void watch(WebSocketSession session, OutboundSession outboundSession) {
+        if (wheel == null) {
+            return;
+        }
+        long idleTimeout = idleTimeout(session.getUri());
+        wheel.schedule(() -> check(outboundSession, idleTimeout), heartbeat.getPingInterval());
+    }
+
+    private void check(OutboundSession outboundSession, long idleTimeout) {
+        if (outboundSession.isClosed()) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - outboundSession.getLastActive();
+        if (idle >= idleTimeout) {
+            zombies.add(outboundSession);
+            return;
+        }
+        if (idle >= heartbeat.getPingInterval()) {
+            outboundSession.ping();
+        }
+        long next = Math.min(heartbeat.getPingInterval(), idleTimeout - idle);
+        wheel.schedule(() -> check(outboundSession, idleTimeout), next);
+    }
+
+    /**
+     * 分批关闭僵尸连接, 避免大量连接同时断开时长时间占用线程
+     */
+    private void reap() {
+        int count = 0;
+        OutboundSession outboundSession;
+        while (count < heartbeat.getReapBatch() && (outboundSession = zombies.poll()) != null) {
+            try {
+                outboundSession.close(CloseStatus.SESSION_NOT_RELIABLE, "心跳超时");
+            } catch (Exception e) {
+                log.error("关闭心跳超时连接失败, sessionId: {}", outboundSession.getId(), e);
+            }
+            count++;
+        }
+        if (count > 0) {
+            log.info("关闭心跳超时连接 {} 个, 剩余 {} 个", count, zombies.size());
+        }
+    }
+
+    private long idleTimeout(URI uri) {
+        String value = uri == null ? null
+                : UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst(IDLE_TIMEOUT);
+        if (!NumberUtil.isLong(value)) {
+            return heartbeat.getIdleTimeout();
+        }
+        long min = heartbeat.getPingInterval() * 2;
+        return Math.max(min, Math.min(Long.parseLong(value), heartbeat.getMaxIdleTimeout()));
+    }
+}
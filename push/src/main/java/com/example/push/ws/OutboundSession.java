@@ -0,0 +1,274 @@
+package com.example.push.ws;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带出站队列的连接
+ * 推送线程只负责入队, 由发送线程池异步写出, 慢连接不会阻塞推送线程
+ */
+@Slf4j
+public class OutboundSession {
+
+    /**
+     * 每次最多连续发送的消息数, 避免单个连接长期占用发送线程
+     */
+    private static final int DRAIN_BATCH = 64;
+
+    /**
+     * ping 消息的合并 key
+     */
+    private static final Object PING = new Object();
+
+    @Getter
+    private final WebSocketSession session;
+
+    private final Executor writer;
+
+    private final long sendTimeLimit;
+
+    private final int bufferSizeLimit;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final PushMetrics metrics;
+
+    /**
+     * 待发送消息, 由 this 加锁保护
+     */
+    private final Deque<Pending> queue = new ArrayDeque<>();
+
+    /**
+     * 合并 key -> 队列中未发送的消息
+     */
+    private final Map<Object, Pending> conflated = new HashMap<>();
+
+    private long bufferSize;
+
+    private boolean draining;
+
+    private boolean closed;
+
+    private volatile long sendStartTime;
+
+    /**
+     * 最后一次收到客户端消息的时间
+     */
+    @Getter
+    private volatile long lastActive = System.currentTimeMillis();
+
+    /**
+     * 订阅时协商的推送数据格式
+     */
+    @Getter
+    @Setter
+    private volatile PayloadFormat format = PayloadFormat.JSON;
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public OutboundSession(WebSocketSession session, Executor writer, long sendTimeLimit,
+                           int bufferSizeLimit, OverflowPolicy overflowPolicy, PushMetrics metrics) {
+        this.session = session;
+        this.writer = writer;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+    }
+
+    public String getId() {
+        return SessionIdInterceptor.id(session);
+    }
+
+    /**
+     * 收到客户端消息
+     */
+    public void touch() {
+        lastActive = System.currentTimeMillis();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 发送 ping, 未发送的 ping 会被合并, 与溢出策略无关
+     */
+    public boolean ping() {
+        return offer(new PingMessage(ByteBuffer.wrap(Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.US_ASCII))), PING);
+    }
+
+    /**
+     * 消息入队, 不阻塞
+     *
+     * @param message      消息
+     * @param conflationKey 合并 key, 一般为主题, 可以为null
+     * @return false 连接已关闭或被判定为慢连接
+     */
+    public boolean offer(WebSocketMessage<?> message, Object conflationKey) {
+        long start = sendStartTime;
+        if (start > 0 && System.currentTimeMillis() - start > sendTimeLimit) {
+            close(CloseStatus.SESSION_NOT_RELIABLE, "发送超时");
+            return false;
+        }
+        boolean overflow = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            int length = message.getPayloadLength();
+            boolean conflate = conflates(conflationKey);
+            Pending pending = conflate ? conflated.get(conflationKey) : null;
+            if (pending != null) {
+                //同一主题未发送的旧消息直接替换
+                bufferSize += length - pending.length;
+                pending.message = message;
+                pending.length = length;
+                dropped.increment();
+                metrics.dropped(1);
+            } else {
+                pending = new Pending(message, length, conflationKey);
+                queue.addLast(pending);
+                bufferSize += length;
+                if (conflate) {
+                    conflated.put(conflationKey, pending);
+                }
+            }
+            while (bufferSize > bufferSizeLimit && queue.size() > 1) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    overflow = true;
+                    break;
+                }
+                remove(queue.pollFirst());
+                dropped.increment();
+                metrics.dropped(1);
+            }
+            if (!overflow && !draining) {
+                draining = true;
+                writer.execute(this::drain);
+            }
+        }
+        if (overflow) {
+            close(CloseStatus.SESSION_NOT_RELIABLE, "待发送消息超出上限");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 关闭连接并丢弃未发送的消息
+     */
+    public void close(CloseStatus status, String reason) {
+        if (!discard()) {
+            return;
+        }
+        log.warn("sessionId: {} {}, 关闭连接", getId(), reason);
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.error("sessionId: {} 关闭连接失败", getId(), e);
+        }
+    }
+
+    /**
+     * 连接已关闭时停止发送并丢弃未发送的消息
+     *
+     * @return 之前未关闭时返回true
+     */
+    public synchronized boolean discard() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        dropped.add(queue.size());
+        metrics.dropped(queue.size());
+        queue.clear();
+        conflated.clear();
+        bufferSize = 0;
+        return true;
+    }
+
+    public SessionStat stat() {
+        long start = sendStartTime;
+        synchronized (this) {
+            return new SessionStat(getId(), queue.size(), bufferSize, sent.sum(), dropped.sum(),
+                    start > 0 ? System.currentTimeMillis() - start : 0);
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Pending pending;
+            synchronized (this) {
+                pending = queue.pollFirst();
+                if (pending == null || closed) {
+                    draining = false;
+                    return;
+                }
+                remove(pending);
+            }
+            sendStartTime = System.currentTimeMillis();
+            long start = System.nanoTime();
+            try {
+                session.sendMessage(pending.message);
+                sent.increment();
+                metrics.sent(pending.length, System.nanoTime() - start);
+            } catch (Exception e) {
+                log.error("sessionId: {} 推送数据失败", getId(), e);
+                metrics.sendFailed();
+                sendStartTime = 0;
+                close(CloseStatus.SESSION_NOT_RELIABLE, "推送数据失败");
+                return;
+            }
+            sendStartTime = 0;
+        }
+        //未发送完, 重新排队让其他连接先发送
+        writer.execute(this::drain);
+    }
+
+    /**
+     * ping 不论何种策略都合并; 其他消息只在 CONFLATE 策略下按 key 合并
+     */
+    private boolean conflates(Object conflationKey) {
+        return conflationKey == PING || conflationKey != null && overflowPolicy == OverflowPolicy.CONFLATE;
+    }
+
+    private void remove(Pending pending) {
+        bufferSize -= pending.length;
+        if (pending.conflationKey != null) {
+            conflated.remove(pending.conflationKey, pending);
+        }
+    }
+
+    private static class Pending {
+
+        private WebSocketMessage<?> message;
+
+        private int length;
+
+        private final Object conflationKey;
+
+        private Pending(WebSocketMessage<?> message, int length, Object conflationKey) {
+            this.message = message;
+            this.length = length;
+            this.conflationKey = conflationKey;
+        }
+    }
+}
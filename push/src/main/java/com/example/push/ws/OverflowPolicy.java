@@ -0,0 +1,22 @@
+package com.example.push.ws;
+
+/**
+ * 连接待发送消息超出上限时的处理策略
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 丢弃最早的消息
+     */
+    DROP_OLDEST,
+
+    /**
+     * 同一主题只保留最新的一条, 仍超出时丢弃最早的消息
+     */
+    CONFLATE,
+
+    /**
+     * 关闭连接
+     */
+    DISCONNECT
+}
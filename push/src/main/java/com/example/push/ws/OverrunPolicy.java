@@ -0,0 +1,17 @@
+package com.example.push.ws;
+
+/**
+ * handler 定时任务到点时上一次还未执行完的处理策略
+ */
+public enum OverrunPolicy {
+
+    /**
+     * 跳过本次
+     */
+    SKIP,
+
+    /**
+     * 合并: 上一次执行完后立即补执行一次, 期间多次到点只补一次
+     */
+    COALESCE
+}
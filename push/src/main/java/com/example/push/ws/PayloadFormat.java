@@ -0,0 +1,17 @@
+package com.example.push.ws;
+
+/**
+ * 推送数据格式, 订阅时通过 format 字段协商
+ */
+public enum PayloadFormat {
+
+    /**
+     * 文本 JSON
+     */
+    JSON,
+
+    /**
+     * 二进制 CBOR, 首字节为压缩标记
+     */
+    CBOR
+}
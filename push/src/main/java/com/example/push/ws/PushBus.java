@@ -0,0 +1,194 @@
+package com.example.push.ws;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.push.config.PushProperties;
+import com.example.push.constant.WsConstants;
+import com.example.push.handler.AbstractTopicWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 事件推送入口
+ * 数据变化时由 handler 或上游监听器调用 publish, 按主题路由到 handler 后立即推送给订阅的连接, 不等待定时任务;
+ * 同一主题在合并窗口内的多次推送只发送第一次和窗口结束时的最新一次, 见 {@link PushProperties.Bus}
+ * <p>
+ * 上游可以通过三种方式推送:
+ * 1. 直接调用 {@link #publish(String, JSON)} / {@link #publish(String, JSONObject, JSON)}
+ * 2. 发布 Spring 事件 {@link PushEvent}
+ * 3. 开启 push.bus.redis-listen 后向 redis 频道 {@link #CHANNEL} 发布 {"topic":"market.btc.depth","param":{...},"data":{...}},
+ * param 为空时推送给该主题的所有订阅
+ * <p>
+ * 只推送给本节点的连接, 多节点时每个节点都需要收到事件, redis 频道天然满足; 共享计算(push.cluster.shared-compute)只作用于定时任务
+ */
+@Slf4j
+@Component
+public class PushBus {
+
+    public static final String CHANNEL = StrUtil.format(WsConstants.FORMAT, "bus", "publish");
+
+    private static final String PARAM = "param";
+
+    private final WebSocketFactory webSocketFactory;
+
+    private final PushMetrics metrics;
+
+    private final PushProperties.Bus config;
+
+    private final ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+
+    private final RedisSerializer<?> serializer;
+
+    /**
+     * 合并窗口定时, 第一次需要时创建
+     */
+    private volatile TimerWheel wheel;
+
+    public PushBus(@Lazy WebSocketFactory webSocketFactory, PushMetrics metrics, PushProperties pushProperties,
+                   @Qualifier("pushRedisMessageListenerContainer") ObjectProvider<RedisMessageListenerContainer> listenerContainer,
+                   RedisTemplate<String, Object> redisTemplate) {
+        this.webSocketFactory = webSocketFactory;
+        this.metrics = metrics;
+        this.config = pushProperties.getBus();
+        this.listenerContainer = listenerContainer;
+        this.serializer = redisTemplate.getValueSerializer();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isRedisListen()) {
+            return;
+        }
+        listenerContainer.getObject().addMessageListener((message, pattern) -> {
+            try {
+                receive(message.getBody());
+            } catch (Exception e) {
+                log.error("处理推送事件失败", e);
+            }
+        }, new ChannelTopic(CHANNEL));
+        log.info("订阅推送事件频道: {}", CHANNEL);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    /**
+     * 推送给订阅该主题的所有连接, 不区分订阅参数
+     *
+     * @param topic 订阅的主题名
+     * @return 没有 handler 或没有连接订阅时返回false
+     */
+    public boolean publish(String topic, JSON payload) {
+        WebSocketFactory.Route route = route(topic);
+        return route != null && subscribed(handler(route).publish(route.getTopic(), payload) > 0);
+    }
+
+    /**
+     * 推送给以指定参数订阅该主题的连接
+     *
+     * @param param 订阅参数, 与订阅时的参数相同即可, 不要求字段顺序
+     * @return 没有 handler 或没有连接订阅时返回false
+     */
+    public boolean publish(String topic, JSONObject param, JSON payload) {
+        WebSocketFactory.Route route = route(topic);
+        return route != null && subscribed(handler(route).publish(Topic.of(route.getTopic(), param), payload));
+    }
+
+    @EventListener
+    public void onEvent(PushEvent event) {
+        if (event.getParam() == null) {
+            publish(event.getTopic(), event.getPayload());
+        } else {
+            publish(event.getTopic(), event.getParam(), event.getPayload());
+        }
+    }
+
+    /**
+     * 在合并窗口结束时执行, 只用于发送合并后的数据
+     *
+     * @param delay 延迟毫秒数
+     */
+    public void schedule(Runnable task, long delay) {
+        TimerWheel current = wheel;
+        if (current == null) {
+            synchronized (this) {
+                current = wheel;
+                if (current == null) {
+                    current = new TimerWheel("ws-bus-", config.getTick(), 512);
+                    wheel = current;
+                }
+            }
+        }
+        current.schedule(task, delay);
+    }
+
+    /**
+     * 其他服务通过 RedisUtil.publish 发布时为序列化后的字符串, 通过 redis-cli 发布时为原始 JSON
+     */
+    private void receive(byte[] body) {
+        String text;
+        try {
+            Object value = serializer.deserialize(body);
+            text = value instanceof String ? (String) value : JSONUtil.toJsonStr(value);
+        } catch (Exception e) {
+            text = new String(body, StandardCharsets.UTF_8);
+        }
+        JSONObject event = JSONUtil.parseObj(text);
+        String topic = event.getStr(WsConstants.topic);
+        JSON payload = (JSON) event.get(WsConstants.data);
+        if (StrUtil.isEmpty(topic) || payload == null) {
+            log.warn("推送事件缺少 topic 或 data: {}", text);
+            return;
+        }
+        JSONObject param = event.getJSONObject(PARAM);
+        if (param == null) {
+            publish(topic, payload);
+        } else {
+            publish(topic, param, payload);
+        }
+    }
+
+    /**
+     * 查找主题对应的 handler, 主题名精确匹配时为 handler key, 通配符匹配时为小写的主题, 与订阅时一致
+     *
+     * @return 没有按主题推送的 handler 时返回null
+     */
+    private WebSocketFactory.Route route(String topic) {
+        WebSocketFactory.Route route = webSocketFactory.route(topic);
+        if (route != null && route.getHandler() instanceof AbstractTopicWebSocketHandler) {
+            return route;
+        }
+        metrics.busUnrouted();
+        log.debug("推送事件没有按主题推送的 handler, topic:{}", topic);
+        return null;
+    }
+
+    private static AbstractTopicWebSocketHandler handler(WebSocketFactory.Route route) {
+        return (AbstractTopicWebSocketHandler) route.getHandler();
+    }
+
+    private boolean subscribed(boolean subscribed) {
+        if (!subscribed) {
+            metrics.busUnrouted();
+        }
+        return subscribed;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.push.ws;
+
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 主动推送事件, 通过 ApplicationEventPublisher 发布后由 {@link PushBus} 推送
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PushEvent {
+
+    /**
+     * 订阅的主题名, 如 test_sub、market.btc.depth
+     */
+    private final String topic;
+
+    /**
+     * 订阅参数, 为null时推送给该主题的所有订阅, 不区分参数
+     */
+    private final JSONObject param;
+
+    /**
+     * 推送数据
+     */
+    private final JSON payload;
+
+    public PushEvent(String topic, JSON payload) {
+        this(topic, null, payload);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.push.ws;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.example.push.config.PushProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * push 模块的线程池
+ * VIRTUAL 模式下 handler 任务、数据加载和连接发送都在虚拟线程中执行, 阻塞的上游调用不占用平台线程;
+ * 项目按 JDK 11 编译, 虚拟线程通过反射创建, 运行时不支持时回退为平台线程
+ */
+@Slf4j
+@Component
+public class PushExecutors {
+
+    private final ExecutionMode mode;
+
+    /**
+     * 数据加载线程池, handler 每个周期并行加载各主题的数据
+     */
+    private final ExecutorService fetcher;
+
+    public PushExecutors(PushProperties pushProperties) {
+        PushProperties.Scheduler config = pushProperties.getScheduler();
+        if (config.getExecutionMode() == ExecutionMode.VIRTUAL && virtualThreadFactory("ws-probe-") == null) {
+            log.warn("当前 JDK {} 不支持虚拟线程, 使用平台线程", System.getProperty("java.version"));
+            this.mode = ExecutionMode.PLATFORM;
+        } else {
+            this.mode = config.getExecutionMode();
+        }
+        log.info("push 线程模式: {}", mode);
+        this.fetcher = newExecutor("ws-fetch-", config.getFetchThreads());
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    public ExecutorService getFetcher() {
+        return fetcher;
+    }
+
+    /**
+     * 创建线程池, VIRTUAL 模式下每个任务一个虚拟线程, 忽略线程数
+     *
+     * @param prefix  线程名前缀
+     * @param threads 平台线程数
+     */
+    public ExecutorService newExecutor(String prefix, int threads) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            try {
+                Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) method.invoke(null, virtualThreadFactory(prefix));
+            } catch (ReflectiveOperationException e) {
+                log.error("创建虚拟线程池失败, 使用平台线程: {}", prefix, e);
+            }
+        }
+        return Executors.newFixedThreadPool(threads,
+                ThreadFactoryBuilder.create().setNamePrefix(prefix).setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        fetcher.shutdown();
+    }
+
+    /**
+     * Thread.ofVirtual().name(prefix, 0).factory()
+     *
+     * @return 不支持虚拟线程时返回null
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.push.ws;
+
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * 待推送的数据
+ * 按连接协商的格式编码, 每种格式最多编码一次, 同一格式的连接共用同一条消息
+ */
+public class PushMessage {
+
+    private final Object payload;
+
+    private final FrameCodec frameCodec;
+
+    private final PushMetrics metrics;
+
+    /**
+     * 出站队列合并 key, 为null时不合并
+     */
+    private final Object conflationKey;
+
+    private final WebSocketMessage<?>[] encoded = new WebSocketMessage<?>[PayloadFormat.values().length];
+
+    public PushMessage(Object payload, FrameCodec frameCodec, PushMetrics metrics, Object conflationKey) {
+        this.payload = payload;
+        this.frameCodec = frameCodec;
+        this.metrics = metrics;
+        this.conflationKey = conflationKey;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    public Object getConflationKey() {
+        return conflationKey;
+    }
+
+    /**
+     * 获取指定格式的消息, 只在推送线程中调用
+     */
+    public WebSocketMessage<?> get(PayloadFormat format) {
+        WebSocketMessage<?> message = encoded[format.ordinal()];
+        if (message == null) {
+            long start = System.nanoTime();
+            message = frameCodec.encode(payload, format);
+            metrics.encoded(format, System.nanoTime() - start);
+            encoded[format.ordinal()] = message;
+        }
+        return message;
+    }
+}
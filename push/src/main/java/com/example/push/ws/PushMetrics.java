@@ -0,0 +1,211 @@
+package com.example.push.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * push 推送链路指标, 通过 actuator 的 /actuator/metrics 和 /actuator/prometheus 查看
+ * 所有指标在启动或 handler 初始化时注册, 记录时只做计数, 不创建对象
+ */
+@Component
+public class PushMetrics {
+
+    private static final String HANDLER = "handler";
+
+    private final MeterRegistry registry;
+
+    private final Counter inboundText;
+
+    private final Counter inboundBinary;
+
+    private final Counter parseErrors;
+
+    private final Counter rateLimited;
+
+    private final Counter topicLimited;
+
+    /**
+     * 下标为 {@link PayloadFormat#ordinal()}
+     */
+    private final Timer[] encode;
+
+    private final Counter bytesSent;
+
+    private final Timer sendLatency;
+
+    private final Counter sendFailures;
+
+    private final Counter dropped;
+
+    private final Counter busDelivered;
+
+    private final Counter busConflated;
+
+    private final Counter busUnrouted;
+
+    public PushMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.inboundText = inbound(registry, "text");
+        this.inboundBinary = inbound(registry, "binary");
+        this.parseErrors = Counter.builder("push.frames.parse.errors")
+                .description("解析失败的请求帧数")
+                .register(registry);
+        this.rateLimited = rejected(registry, "rate");
+        this.topicLimited = rejected(registry, "topic");
+        this.encode = new Timer[PayloadFormat.values().length];
+        for (PayloadFormat format : PayloadFormat.values()) {
+            encode[format.ordinal()] = Timer.builder("push.encode")
+                    .description("推送数据编码耗时")
+                    .tag("format", format.name().toLowerCase(Locale.ROOT))
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        this.bytesSent = Counter.builder("push.bytes.sent")
+                .description("写出的字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        this.sendLatency = Timer.builder("push.send.latency")
+                .description("单条消息写出耗时")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.sendFailures = Counter.builder("push.send.failures")
+                .description("写出失败次数")
+                .register(registry);
+        this.dropped = Counter.builder("push.send.dropped")
+                .description("被合并、超出缓冲或连接关闭而丢弃的消息数")
+                .register(registry);
+        this.busDelivered = bus(registry, "delivered");
+        this.busConflated = bus(registry, "conflated");
+        this.busUnrouted = bus(registry, "unrouted");
+    }
+
+    private static Counter inbound(MeterRegistry registry, String type) {
+        return Counter.builder("push.frames.inbound")
+                .description("收到的请求帧数")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("push.frames.rejected")
+                .description("被限流拒绝的请求帧数")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static Counter bus(MeterRegistry registry, String result) {
+        return Counter.builder("push.bus.events")
+                .description("PushBus 收到的主动推送: delivered 已推送 / conflated 在合并窗口内被合并 / unrouted 没有订阅或 handler")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public void inbound(boolean binary) {
+        (binary ? inboundBinary : inboundText).increment();
+    }
+
+    public void parseError() {
+        parseErrors.increment();
+    }
+
+    public void rateLimited() {
+        rateLimited.increment();
+    }
+
+    public void topicLimited() {
+        topicLimited.increment();
+    }
+
+    public void busDelivered() {
+        busDelivered.increment();
+    }
+
+    public void busConflated() {
+        busConflated.increment();
+    }
+
+    public void busUnrouted() {
+        busUnrouted.increment();
+    }
+
+    public void encoded(PayloadFormat format, long nanos) {
+        encode[format.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void sent(int bytes, long nanos) {
+        bytesSent.increment(bytes);
+        sendLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void sendFailed() {
+        sendFailures.increment();
+    }
+
+    public void dropped(long count) {
+        dropped.increment(count);
+    }
+
+    /**
+     * 当前连接数
+     */
+    public <T> void sessions(T store, ToDoubleFunction<T> count) {
+        Gauge.builder("push.sessions", store, count)
+                .description("本节点连接数")
+                .register(registry);
+    }
+
+    /**
+     * handler 当前订阅数和主题数
+     */
+    public <T> void subscriptions(String key, T store, ToDoubleFunction<T> subscriptions, ToDoubleFunction<T> topics) {
+        Gauge.builder("push.subscriptions", store, subscriptions)
+                .description("订阅数, 同一连接订阅多个主题时分别计数")
+                .tag(HANDLER, key)
+                .register(registry);
+        Gauge.builder("push.topics", store, topics)
+                .description("订阅的主题分组数")
+                .tag(HANDLER, key)
+                .register(registry);
+    }
+
+    /**
+     * handler 定时任务耗时
+     */
+    public Timer task(String key) {
+        return Timer.builder("push.task.duration")
+                .description("handler 定时任务耗时")
+                .tag(HANDLER, key)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * handler 定时任务到点时上一次未执行完的次数
+     */
+    public void overruns(String key, LongAdder overruns) {
+        FunctionCounter.builder("push.task.overruns", overruns, LongAdder::sum)
+                .description("到点时上一次未执行完的次数")
+                .tag(HANDLER, key)
+                .register(registry);
+    }
+
+    /**
+     * handler 每个周期推送的连接数
+     */
+    public DistributionSummary fanout(String key) {
+        return DistributionSummary.builder("push.fanout")
+                .description("每个周期推送的连接数")
+                .tag(HANDLER, key)
+                .register(registry);
+    }
+}
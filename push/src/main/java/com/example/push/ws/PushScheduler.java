@@ -0,0 +1,177 @@
+package com.example.push.ws;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.example.push.config.PushProperties;
+import com.example.push.handler.BaseWebSocketHandler;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * handler 定时任务调度
+ * 每个 handler 按自己的 {@link BaseWebSocketHandler#period()} 调度, 在独立线程池中并行执行,
+ * 单个 handler 执行过慢不影响其他 handler; period 小于等于0的 handler 不调度, 只通过 {@link PushBus} 推送
+ */
+@Slf4j
+@Component
+public class PushScheduler {
+
+    private final Map<String, BaseWebSocketHandler> handlers;
+
+    private final PushProperties.Scheduler config;
+
+    private final List<HandlerTask> tasks = new ArrayList<>();
+
+    /**
+     * 只负责按时触发, 不执行 handler 任务
+     */
+    private ScheduledExecutorService ticker;
+
+    /**
+     * 执行 handler 任务
+     */
+    private ExecutorService workers;
+
+    private final PushExecutors pushExecutors;
+
+    private final PushMetrics metrics;
+
+    public PushScheduler(@Lazy Map<String, BaseWebSocketHandler> handlers, PushProperties pushProperties,
+                         PushExecutors pushExecutors, PushMetrics metrics) {
+        this.handlers = handlers;
+        this.config = pushProperties.getScheduler();
+        this.pushExecutors = pushExecutors;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("ws-ticker-").setDaemon(true).build());
+        workers = pushExecutors.newExecutor("ws-task-", config.getThreads());
+        handlers.forEach((key, handler) -> {
+            if (handler.period() <= 0) {
+                log.info("websocket handler key:{} 不定时执行, 只主动推送", key);
+                return;
+            }
+            HandlerTask task = new HandlerTask(key, handler);
+            tasks.add(task);
+            ticker.scheduleAtFixedRate(task::tick, task.period, task.period, TimeUnit.MILLISECONDS);
+            log.info("websocket 定时任务 key:{}, 周期:{}ms", key, task.period);
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        workers.shutdown();
+    }
+
+    public List<HandlerStat> stats() {
+        List<HandlerStat> stats = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> stats.add(task.stat()));
+        return stats;
+    }
+
+    private class HandlerTask {
+
+        private final String key;
+
+        private final BaseWebSocketHandler handler;
+
+        private final long period;
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        /**
+         * 执行期间又到点了, COALESCE 时需要补执行
+         */
+        private volatile boolean pending;
+
+        /**
+         * 下一次计划执行时间, 只在 ticker 线程读写
+         */
+        private long nextTime;
+
+        private final LongAdder runs = new LongAdder();
+
+        private final LongAdder overruns = new LongAdder();
+
+        private final Timer duration;
+
+        private volatile long lastDuration;
+
+        private volatile long maxDuration;
+
+        private volatile long lastLag;
+
+        private volatile long maxLag;
+
+        private HandlerTask(String key, BaseWebSocketHandler handler) {
+            this.key = key;
+            this.handler = handler;
+            this.period = handler.period();
+            this.nextTime = System.currentTimeMillis() + period;
+            this.duration = metrics.task(key);
+            metrics.overruns(key, overruns);
+        }
+
+        private void tick() {
+            long scheduledTime = nextTime;
+            nextTime += period;
+            if (!running.compareAndSet(false, true)) {
+                overruns.increment();
+                if (config.getOverrunPolicy() == OverrunPolicy.COALESCE) {
+                    pending = true;
+                }
+                return;
+            }
+            workers.execute(() -> execute(scheduledTime));
+        }
+
+        private void execute(long scheduledTime) {
+            do {
+                do {
+                    pending = false;
+                    run(scheduledTime);
+                    scheduledTime = System.currentTimeMillis();
+                } while (pending);
+                running.set(false);
+                //释放前后又到点了, 抢到执行权就继续补执行
+            } while (pending && running.compareAndSet(false, true));
+        }
+
+        private void run(long scheduledTime) {
+            long start = System.currentTimeMillis();
+            lastLag = Math.max(start - scheduledTime, 0);
+            maxLag = Math.max(maxLag, lastLag);
+            long startNanos = System.nanoTime();
+            try {
+                handler.task();
+            } catch (Exception e) {
+                log.error("定时执行websocket 数据异常, key:{}", key, e);
+            }
+            duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            lastDuration = System.currentTimeMillis() - start;
+            maxDuration = Math.max(maxDuration, lastDuration);
+            runs.increment();
+        }
+
+        private HandlerStat stat() {
+            return new HandlerStat(key, period, runs.sum(), overruns.sum(), lastDuration, maxDuration, lastLag, maxLag);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.push.ws;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 转发给其他节点的消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RemoteMessage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String sessionId;
+
+    /**
+     * 未编码的 JSON, 由目标节点按连接格式编码
+     */
+    private String json;
+
+    /**
+     * 已编码的文本消息
+     */
+    private String text;
+
+    /**
+     * 已编码的二进制消息
+     */
+    private byte[] binary;
+}
@@ -0,0 +1,48 @@
+package com.example.push.ws;
+
+import cn.hutool.core.util.IdUtil;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * 握手时为连接分配全局唯一的 sessionId
+ * Tomcat 的 sessionId 是进程内自增的, 多个 push 节点之间会重复, 集群内统一使用这里生成的 id
+ */
+public class SessionIdInterceptor implements HandshakeInterceptor {
+
+    private static final String ATTRIBUTE = "ws.sessionId";
+
+    /**
+     * 获取连接的全局 sessionId
+     */
+    public static String id(WebSocketSession session) {
+        Object id = session.getAttributes().get(ATTRIBUTE);
+        return id == null ? session.getId() : (String) id;
+    }
+
+    /**
+     * 分配 sessionId 并保存到连接属性中
+     */
+    public static String assign(Map<String, Object> attributes) {
+        String id = IdUtil.fastSimpleUUID();
+        attributes.put(ATTRIBUTE, id);
+        return id;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        assign(attributes);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
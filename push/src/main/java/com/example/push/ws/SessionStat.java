@@ -0,0 +1,39 @@
+package com.example.push.ws;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 连接发送状态
+ */
+@Data
+@AllArgsConstructor
+public class SessionStat {
+
+    private String sessionId;
+
+    /**
+     * 待发送消息数
+     */
+    private int queueDepth;
+
+    /**
+     * 待发送字节数
+     */
+    private long bufferSize;
+
+    /**
+     * 已发送消息数
+     */
+    private long sent;
+
+    /**
+     * 丢弃(含合并)消息数
+     */
+    private long dropped;
+
+    /**
+     * 当前消息已发送时长(毫秒), 0 表示空闲
+     */
+    private long sendTime;
+}
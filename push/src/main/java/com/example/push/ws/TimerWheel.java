@@ -0,0 +1,171 @@
+package com.example.push.ws;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 哈希时间轮
+ * 添加和取消定时任务都是 O(1), 不加锁; 由单个线程每个 tick 只处理一个槽
+ * 到期任务在时间轮线程中执行, 只适合耗时很短的任务, 如移除过期数据、投递消息
+ */
+@Slf4j
+public class TimerWheel {
+
+    /**
+     * 订阅、连接过期共用的时间轮, 精度 1 秒
+     */
+    private static volatile TimerWheel shared;
+
+    private final long tickMillis;
+
+    /**
+     * 槽只在时间轮线程中访问
+     */
+    private final Queue<Timeout>[] buckets;
+
+    private final int mask;
+
+    /**
+     * 新加入的任务, 下一个 tick 时放入对应的槽
+     */
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService ticker;
+
+    private final long startTime;
+
+    /**
+     * 已处理的 tick 数, 只在时间轮线程中修改
+     */
+    private long tick;
+
+    /**
+     * @param name       线程名前缀
+     * @param tickMillis 每个 tick 的毫秒数, 即定时精度
+     * @param wheelSize  槽数, 向上取 2 的幂
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickMillis, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.startTime = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix(name).setDaemon(true).build());
+        this.ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static TimerWheel shared() {
+        if (shared == null) {
+            synchronized (TimerWheel.class) {
+                if (shared == null) {
+                    shared = new TimerWheel("ws-wheel-", 1000, 512);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 添加定时任务
+     *
+     * @param delay 延迟毫秒数
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        long deadline = System.currentTimeMillis() + Math.max(delay, 0) - startTime;
+        Timeout timeout = new Timeout(task, deadline);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        try {
+            transferPending();
+            Queue<Timeout> bucket = buckets[(int) (tick & mask)];
+            Iterator<Timeout> iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.cancelled) {
+                    iterator.remove();
+                } else if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                } else {
+                    iterator.remove();
+                    run(timeout);
+                }
+            }
+            tick++;
+        } catch (Throwable e) {
+            log.error("时间轮执行异常", e);
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            //已经过期的任务放到当前槽, 本次 tick 执行
+            long ticks = Math.max(timeout.deadline / tickMillis, tick);
+            timeout.rounds = (ticks - tick) / buckets.length;
+            buckets[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private static void run(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (Throwable e) {
+            log.error("时间轮任务执行异常", e);
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public static class Timeout {
+
+        private final Runnable task;
+
+        /**
+         * 相对时间轮启动时间的到期毫秒数
+         */
+        private final long deadline;
+
+        /**
+         * 还需要转几圈, 只在时间轮线程中访问
+         */
+        private long rounds;
+
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务, 在下次经过所在槽时移除
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.push.ws;
+
+import cn.hutool.json.JSONConfig;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 订阅主题: 主题名 + 归一化后的订阅参数
+ * 参数相同的订阅属于同一个主题, 每个推送周期只计算、序列化一次
+ */
+@Getter
+@ToString(of = {"name", "paramKey"})
+@EqualsAndHashCode(of = {"name", "paramKey"})
+public class Topic {
+
+    private static final JSONConfig ORDERED = JSONConfig.create().setOrder(true);
+
+    /**
+     * 主题名, 精确匹配时为 handler key, 通配符匹配时为订阅的具体主题
+     */
+    private final String name;
+
+    /**
+     * 按 key 排序后的订阅参数, 用于判断两个订阅是否相同
+     */
+    private final String paramKey;
+
+    /**
+     * 订阅参数
+     */
+    private final JSONObject param;
+
+    private Topic(String name, JSONObject param) {
+        this(name, param, JSONUtil.toJsonStr(new JSONObject(sort(param), ORDERED)));
+    }
+
+    private Topic(String name, JSONObject param, String paramKey) {
+        this.name = name;
+        this.param = param;
+        this.paramKey = paramKey;
+    }
+
+    public static Topic of(String name, JSONObject param) {
+        return new Topic(name, param == null ? new JSONObject() : param);
+    }
+
+    /**
+     * 根据已归一化的 paramKey 还原主题, 用于其他节点传来的主题
+     */
+    public static Topic restore(String name, String paramKey) {
+        return new Topic(name, JSONUtil.parseObj(paramKey, ORDERED), paramKey);
+    }
+
+    /**
+     * 递归按 key 排序, 使 {"a":1,"b":2} 与 {"b":2,"a":1} 得到相同的 paramKey
+     */
+    private static Object sort(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> sorted.put(String.valueOf(k), sort(v)));
+            return sorted;
+        }
+        if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>(((Collection<?>) value).size());
+            ((Collection<?>) value).forEach(v -> list.add(sort(v)));
+            return list;
+        }
+        return value;
+    }
+}
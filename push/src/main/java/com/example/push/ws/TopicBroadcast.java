@@ -0,0 +1,51 @@
+package com.example.push.ws;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 主题所属节点计算出的一个周期的推送数据, 广播给所有节点
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopicBroadcast implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 计算节点
+     */
+    private String node;
+
+    /**
+     * handler key
+     */
+    private String handler;
+
+    /**
+     * 为空时表示发送节点登记的主题有变化, 接收节点重新读取分配的主题
+     */
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+
+        private String paramKey;
+
+        /**
+         * 已序列化的推送数据
+         */
+        private String json;
+    }
+}
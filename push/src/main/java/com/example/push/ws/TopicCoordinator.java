@@ -0,0 +1,35 @@
+package com.example.push.ws;
+
+import cn.hutool.json.JSON;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 多节点时协调由哪个节点计算主题数据
+ * 每个主题只由一个节点调用 load, 计算结果广播给所有节点, 各节点只推送给本节点的连接
+ */
+public interface TopicCoordinator {
+
+    /**
+     * 当前节点是否负责计算该主题
+     *
+     * @param handler handler key
+     */
+    boolean owns(String handler, Topic topic);
+
+    /**
+     * 登记本节点有连接订阅的主题, 使负责的节点在本节点没有该主题时也会计算
+     */
+    void register(String handler, Collection<Topic> topics);
+
+    /**
+     * 其他节点登记的、由当前节点负责计算的主题
+     */
+    Collection<Topic> assigned(String handler);
+
+    /**
+     * 广播本周期计算的数据
+     */
+    void publish(String handler, Map<Topic, JSON> payloads);
+}
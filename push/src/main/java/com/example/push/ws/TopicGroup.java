@@ -0,0 +1,64 @@
+package com.example.push.ws;
+
+import cn.hutool.json.JSON;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 同一主题下的所有订阅连接
+ */
+@Getter
+public class TopicGroup {
+
+    private final Topic topic;
+
+    /**
+     * 订阅该主题的 sessionId
+     */
+    private final Set<String> sessionIds = ConcurrentHashMap.newKeySet();
+
+    /*
+     * 以下为增量推送状态, 读写时需对 group 加锁
+     */
+
+    /**
+     * 最近一次推送的全量数据
+     */
+    @Setter
+    private JSON lastPayload;
+
+    /**
+     * 最近一次推送的序号
+     */
+    @Setter
+    private long seq;
+
+    /**
+     * 距离上一次全量推送的周期数
+     */
+    @Setter
+    private int ticks;
+
+    /*
+     * 以下为事件推送的合并窗口状态, 读写时需对 group 加锁
+     */
+
+    /**
+     * 当前合并窗口的结束时间, 之前的推送只保留最新一次
+     */
+    @Setter
+    private long windowEnd;
+
+    /**
+     * 窗口内待发送的最新数据, 不为null时已安排窗口结束时发送
+     */
+    @Setter
+    private JSON pending;
+
+    public TopicGroup(Topic topic) {
+        this.topic = topic;
+    }
+}
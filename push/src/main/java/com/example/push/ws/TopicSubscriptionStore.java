@@ -0,0 +1,117 @@
+package com.example.push.ws;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按主题分组保存订阅
+ * 一个连接对同一个主题名只保留最后一次订阅; 订阅不会过期, 连接关闭时由 {@link #unsubscribe(String)} 移除
+ */
+public class TopicSubscriptionStore {
+
+    /**
+     * key: 主题
+     * value: 订阅该主题的连接
+     */
+    private final Map<Topic, TopicGroup> groups = new ConcurrentHashMap<>();
+
+    /**
+     * key: sessionId
+     * value: 主题名 -> 订阅的主题
+     */
+    private final Map<String, Map<String, Topic>> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅主题, 若之前以不同参数订阅过同名主题则先退出
+     *
+     * @return 订阅的主题分组
+     */
+    public TopicGroup subscribe(String sessionId, Topic topic) {
+        Map<String, Topic> topics = sessions.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>());
+        Topic old = topics.put(topic.getName(), topic);
+        if (old != null && !old.equals(topic)) {
+            leave(sessionId, old);
+        }
+        return groups.compute(topic, (k, group) -> {
+            if (group == null) {
+                group = new TopicGroup(k);
+            }
+            group.getSessionIds().add(sessionId);
+            return group;
+        });
+    }
+
+    /**
+     * 取消订阅指定主题
+     */
+    public void unsubscribe(String sessionId, String name) {
+        Map<String, Topic> topics = sessions.get(sessionId);
+        Topic topic = topics == null ? null : topics.remove(name);
+        if (topic != null) {
+            leave(sessionId, topic);
+        }
+    }
+
+    /**
+     * 取消该连接的所有订阅
+     */
+    public void unsubscribe(String sessionId) {
+        Map<String, Topic> topics = sessions.remove(sessionId);
+        if (topics != null) {
+            topics.values().forEach(topic -> leave(sessionId, topic));
+        }
+    }
+
+    /**
+     * 查找连接订阅的主题分组
+     *
+     * @return 未订阅时返回null
+     */
+    public TopicGroup group(String sessionId, String name) {
+        Map<String, Topic> topics = sessions.get(sessionId);
+        Topic topic = topics == null ? null : topics.get(name);
+        return topic == null ? null : groups.get(topic);
+    }
+
+    /**
+     * 查找主题分组
+     *
+     * @return 没有连接订阅时返回null
+     */
+    public TopicGroup group(Topic topic) {
+        return groups.get(topic);
+    }
+
+    /**
+     * 当前所有主题分组, 弱一致性视图, 不做拷贝
+     */
+    public Collection<TopicGroup> groups() {
+        return groups.values();
+    }
+
+    /**
+     * 订阅数, 遍历所有分组, 只在采集指标时调用
+     */
+    public int subscriptions() {
+        int count = 0;
+        for (TopicGroup group : groups.values()) {
+            count += group.getSessionIds().size();
+        }
+        return count;
+    }
+
+    /**
+     * 主题分组数
+     */
+    public int topics() {
+        return groups.size();
+    }
+
+    private void leave(String sessionId, Topic topic) {
+        groups.computeIfPresent(topic, (k, group) -> {
+            group.getSessionIds().remove(sessionId);
+            return group.getSessionIds().isEmpty() ? null : group;
+        });
+    }
+}
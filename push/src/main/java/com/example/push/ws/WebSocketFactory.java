@@ -1,67 +1,255 @@
 package com.example.push.ws;
 
-import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
 import com.example.push.constant.WsConstants;
 import com.example.push.handler.BaseWebSocketHandler;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
+@Component
 @RequiredArgsConstructor(onConstructor = @__(@Lazy))
 public class WebSocketFactory {
 
     private final Map<String, BaseWebSocketHandler> handlers;
 
+    private final FrameCodec frameCodec;
+
+    private final WebSocketSessionStoreService webSocketSessionStoreService;
+
+    private final FrameLimiter frameLimiter;
+
+    private final PushMetrics metrics;
+
+    /**
+     * 精确匹配路由
+     * key: 小写的 handler key
+     */
+    private final Map<String, Route> routes = new HashMap<>();
+
+    /**
+     * 通配符路由, 如 market.*.depth, 精确匹配不到时按顺序匹配
+     */
+    private final List<WildcardRoute> wildcards = new ArrayList<>();
+
+    /**
+     * 连接订阅的主题和对应的 handler, 用于限制订阅数, 连接关闭时只通知这些 handler
+     * key: sessionId
+     */
+    private final Map<String, Map<String, BaseWebSocketHandler>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 启动时根据 handler key 生成路由表, 运行期间只读
+     */
+    @PostConstruct
+    public void init() {
+        handlers.forEach((key, handler) -> {
+            if (key.contains(WildcardRoute.ANY)) {
+                wildcards.add(new WildcardRoute(key, handler));
+            } else {
+                routes.put(key.toLowerCase(Locale.ROOT), new Route(key, handler));
+            }
+        });
+    }
+
     /**
      * websocket连接,发送请求
+     * 支持批量订阅: {"sub":["a","b"],"data":{...}}
      */
     public void process(WebSocketSession session, TextMessage message){
+        metrics.inbound(false);
+        if (!allow(session)) {
+            return;
+        }
         String text = message.getPayload();
         try {
-            JSONObject param = JSONUtil.parseObj(text);
-            //订阅类型
-            String subType = String.valueOf(param.get(WsConstants.subType));
-            //取消订阅类型
-            String unSubType = String.valueOf(param.get(WsConstants.unSubType));
-            String sessionId = session.getId();
-
-            //遍历所有handler
-            handlers.forEach((key, handler) -> {
-                if(ObjectUtil.isNotEmpty(subType) && key.equalsIgnoreCase(subType)){
-                    //订阅
-                    // TODO: 2022/9/23  new JSONObject(ObjectUtil.defaultIfNull(param.get(WSConstants.data), new HashMap<>())).putOnce("userId", channelHandlerContext.getPrincipal().getName())
-                    handler.connect(sessionId, new JSONObject(param.get(WsConstants.data)));
-                } else if (ObjectUtil.isNotEmpty(unSubType) && key.equalsIgnoreCase(unSubType)) {
-                    //取消订阅
-                    handler.disconnect(sessionId);
-                }
-            });
+            dispatch(session, frameCodec.decode(text));
         }catch (Exception e){
+            metrics.parseError();
             log.error("接收到的参数不为JSON数据类型:{}", text, e);
         }
     }
 
     /**
-     * 执行定时任务, 通过websocket返回数据给前端
+     * websocket连接,发送二进制请求, 格式见 {@link WsConstants#format}
+     */
+    public void process(WebSocketSession session, BinaryMessage message){
+        metrics.inbound(true);
+        if (!allow(session)) {
+            return;
+        }
+        ByteBuffer payload = message.getPayload();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        try {
+            dispatch(session, frameCodec.decode(bytes));
+        }catch (Exception e){
+            metrics.parseError();
+            log.error("接收到的二进制参数格式错误, sessionId:{}, 长度:{}", SessionIdInterceptor.id(session), bytes.length, e);
+        }
+    }
+
+    /**
+     * 解析前限流, 被限流的帧直接丢弃, 错误帧每个连接每秒最多发送一次
+     */
+    private boolean allow(WebSocketSession session) {
+        if (frameLimiter.allow(session)) {
+            return true;
+        }
+        metrics.rateLimited();
+        if (frameLimiter.notifyLimited(session)) {
+            webSocketSessionStoreService.sendMessage(SessionIdInterceptor.id(session),
+                    new JSONObject().set(WsConstants.error, WsConstants.RATE_LIMITED));
+        }
+        return false;
+    }
+
+    private void dispatch(WebSocketSession session, Frame frame) {
+        String sessionId = SessionIdInterceptor.id(session);
+        if (frame.getFormat() != null) {
+            webSocketSessionStoreService.setFormat(sessionId, frame.getFormat());
+        }
+        if (frame.getPing() != null) {
+            webSocketSessionStoreService.sendMessage(sessionId, new JSONObject().set(WsConstants.pong, frame.getPing()));
+        }
+        // TODO: 2022/9/23  new JSONObject(ObjectUtil.defaultIfNull(param.get(WSConstants.data), new HashMap<>())).putOnce("userId", channelHandlerContext.getPrincipal().getName())
+        JSONObject json = frame.getData();
+        //订阅
+        for (String topic : frame.getSub()) {
+            Route route = route(topic);
+            if (route == null) {
+                continue;
+            }
+            Map<String, BaseWebSocketHandler> subscribed = subscriptions.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>());
+            if (!subscribed.containsKey(route.topic) && !frameLimiter.allowTopic(subscribed.size())) {
+                metrics.topicLimited();
+                webSocketSessionStoreService.sendMessage(sessionId,
+                        new JSONObject().set(WsConstants.error, WsConstants.TOPIC_LIMIT).set(WsConstants.topic, topic));
+                continue;
+            }
+            subscribed.put(route.topic, route.handler);
+            route.handler.connect(sessionId, route.topic, json);
+        }
+        //取消订阅
+        for (String topic : frame.getUnSub()) {
+            Route route = route(topic);
+            if (route != null) {
+                Map<String, BaseWebSocketHandler> subscribed = subscriptions.get(sessionId);
+                if (subscribed != null) {
+                    subscribed.remove(route.topic);
+                }
+                route.handler.disconnect(sessionId, route.topic);
+            }
+        }
+        //重新获取全量数据
+        for (String topic : frame.getResync()) {
+            Route route = route(topic);
+            if (route != null) {
+                route.handler.resync(sessionId, route.topic);
+            }
+        }
+    }
+
+    /**
+     * 连接关闭, 从订阅过的所有 handler 中移除
      */
-    @Scheduled(cron = "0/1 * * * * ?")
-    public void run() {
-        handlers.values().forEach(handler -> {
+    public void close(String sessionId) {
+        Map<String, BaseWebSocketHandler> subscribed = subscriptions.remove(sessionId);
+        if (subscribed == null) {
+            return;
+        }
+        for (BaseWebSocketHandler handler : new HashSet<>(subscribed.values())) {
             try {
-                handler.task();
+                handler.disconnect(sessionId);
             } catch (Exception e) {
-                log.error("定时执行websocket 数据异常", e);
+                log.error("连接关闭时取消订阅异常, sessionId:{}", sessionId, e);
             }
-        });
+        }
+    }
+
+    /**
+     * 查找订阅主题对应的 handler, 一次哈希查找, 未命中再匹配通配符
+     *
+     * @return 没有匹配的 handler 时返回null
+     */
+    public Route route(String topic) {
+        String name = topic.toLowerCase(Locale.ROOT);
+        Route route = routes.get(name);
+        if (route != null || wildcards.isEmpty()) {
+            return route;
+        }
+        String[] segments = StrUtil.splitToArray(name, '.');
+        for (WildcardRoute wildcard : wildcards) {
+            if (wildcard.matches(segments)) {
+                return new Route(name, wildcard.handler);
+            }
+        }
+        log.debug("没有匹配的handler, topic:{}", topic);
+        return null;
     }
 
+    /**
+     * 路由结果
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Route {
+
+        /**
+         * 主题名, 精确匹配时为 handler key, 通配符匹配时为小写的订阅主题
+         */
+        private final String topic;
+
+        private final BaseWebSocketHandler handler;
+    }
+
+    /**
+     * 通配符路由, 按 . 分段, * 匹配一段, 末尾 ** 匹配剩余所有段
+     */
+    private static class WildcardRoute {
+
+        private static final String ANY = "*";
+
+        private static final String REST = "**";
 
+        private final String[] pattern;
+
+        private final BaseWebSocketHandler handler;
+
+        private WildcardRoute(String key, BaseWebSocketHandler handler) {
+            this.pattern = StrUtil.splitToArray(key.toLowerCase(Locale.ROOT), '.');
+            this.handler = handler;
+        }
+
+        private boolean matches(String[] segments) {
+            for (int i = 0; i < pattern.length; i++) {
+                if (REST.equals(pattern[i])) {
+                    return segments.length >= i;
+                }
+                if (i >= segments.length || !(ANY.equals(pattern[i]) || pattern[i].equals(segments[i]))) {
+                    return false;
+                }
+            }
+            return segments.length == pattern.length;
+        }
+    }
 }
@@ -1,32 +1,73 @@
 package com.example.push.ws;
 
-import com.example.common.util.SpringBeanUtil;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
-
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor(onConstructor = @__(@Lazy))
-public class WebSocketHandler extends TextWebSocketHandler {
+public class WebSocketHandler extends AbstractWebSocketHandler {
 
     private final WebSocketSessionStoreService  webSocketSessionStoreService;
 
-    /**
-     * 用于记录和管理所有客户端的channel
-     */
-    private static final Map<String, WebSocketSession> channels = new ConcurrentHashMap<>(1000);
+    private final WebSocketFactory webSocketFactory;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        super.afterConnectionEstablished(session);
+        webSocketSessionStoreService.register(session);
+    }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception{
         super.handleTextMessage(session, message);
-        SpringBeanUtil.getBean(WebSocketFactory.class).process(session, message);
+        webSocketSessionStoreService.touch(SessionIdInterceptor.id(session));
+        webSocketFactory.process(session, message);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        super.handleBinaryMessage(session, message);
+        webSocketSessionStoreService.touch(SessionIdInterceptor.id(session));
+        webSocketFactory.process(session, message);
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        super.handlePongMessage(session, message);
+        webSocketSessionStoreService.touch(SessionIdInterceptor.id(session));
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        log.error("ws传输异常, sessionId:{}", SessionIdInterceptor.id(session), exception);
+        //不等待连接关闭回调, 先停止推送
+        release(session);
+        if (session.isOpen()) {
+            session.close(CloseStatus.SERVER_ERROR);
+        }
     }
 
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        super.afterConnectionClosed(session, status);
+        release(session);
+    }
 
+    /**
+     * 取消连接的所有订阅并移除连接, 可重复调用
+     */
+    private void release(WebSocketSession session) {
+        String sessionId = SessionIdInterceptor.id(session);
+        webSocketFactory.close(sessionId);
+        webSocketSessionStoreService.remove(sessionId);
+    }
 }
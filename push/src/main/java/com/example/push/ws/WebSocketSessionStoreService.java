@@ -1,8 +1,75 @@
 package com.example.push.ws;
 
 import cn.hutool.json.JSON;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.function.Supplier;
 
 public interface WebSocketSessionStoreService {
 
+    /**
+     * 保存连接
+     * @param session
+     */
+    void register(WebSocketSession session);
+
+    /**
+     * 移除连接
+     * @param sessionId
+     */
+    void remove(String sessionId);
+
+    /**
+     * 收到客户端消息, 刷新连接活跃时间
+     * @param sessionId
+     */
+    void touch(String sessionId);
+
+    /**
+     * 设置连接的推送数据格式
+     * @param sessionId
+     * @param format
+     */
+    void setFormat(String sessionId, PayloadFormat format);
+
+    /**
+     * 按连接协商的格式编码后发送
+     * @param sessionId
+     * @param json
+     */
     Boolean sendMessage(String sessionId, JSON json);
+
+    /**
+     * 发送已编码好的消息
+     * @param sessionId
+     * @param message
+     */
+    Boolean sendMessage(String sessionId, WebSocketMessage<?> message);
+
+    /**
+     * 同一条消息发送给主题下所有连接, 每种格式只编码一次
+     * @param group
+     * @param message
+     */
+    void sendMessage(TopicGroup group, PushMessage message);
+
+    /**
+     * 所有连接的发送状态
+     */
+    List<SessionStat> stats();
+
+    /**
+     * 本节点的连接数
+     */
+    int count();
+
+    /**
+     * 断开部分连接, 断开前发送重连提示, 用于节点间连接数再平衡
+     * @param count 断开的连接数
+     * @param hint 重连提示, 每个连接获取一次
+     * @return 实际断开的连接数
+     */
+    int shed(int count, Supplier<JSON> hint);
 }
@@ -0,0 +1,121 @@
+package com.example.push.ws.impl;
+
+import com.example.push.config.PushProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 二进制帧: 首字节为压缩标记, 之后为 CBOR 数据
+ * 0: 未压缩, 1: deflate 压缩. 超过 push.compression.threshold 的数据才压缩
+ */
+@Component
+public class CborFrameSupport {
+
+    private static final byte RAW = 0;
+
+    private static final byte DEFLATE = 1;
+
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory()).registerModule(JSONNullSerializer.MODULE);
+
+    private final int threshold;
+
+    private final int level;
+
+    private final int maxInflatedSize;
+
+    public CborFrameSupport(PushProperties pushProperties) {
+        this.threshold = pushProperties.getCompression().getThreshold();
+        this.level = pushProperties.getCompression().getLevel();
+        this.maxInflatedSize = pushProperties.getCompression().getMaxInflatedSize();
+    }
+
+    public ObjectMapper getCborMapper() {
+        return cborMapper;
+    }
+
+    /**
+     * 编码为二进制帧
+     *
+     * @param cbor CBOR 数据
+     */
+    public BinaryMessage wrap(byte[] cbor) {
+        if (cbor.length <= threshold) {
+            byte[] frame = new byte[cbor.length + 1];
+            frame[0] = RAW;
+            System.arraycopy(cbor, 0, frame, 1, cbor.length);
+            return new BinaryMessage(frame);
+        }
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(cbor);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(cbor.length / 2 + 16);
+            out.write(DEFLATE);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return new BinaryMessage(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 二进制帧还原为 CBOR 数据, 解压后超过 maxInflatedSize 时拒绝
+     */
+    public byte[] unwrap(byte[] frame) throws IOException {
+        if (frame.length == 0) {
+            throw new IOException("空的二进制请求");
+        }
+        if (frame[0] == RAW) {
+            byte[] cbor = new byte[frame.length - 1];
+            System.arraycopy(frame, 1, cbor, 0, cbor.length);
+            return cbor;
+        }
+        if (frame[0] != DEFLATE) {
+            throw new IOException("未知的压缩标记: " + frame[0]);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(frame, 1, frame.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(frame.length * 2, maxInflatedSize));
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("二进制请求压缩数据不完整");
+                }
+                if (out.size() + n > maxInflatedSize) {
+                    throw new IOException("二进制请求解压后超过 " + maxInflatedSize + " 字节");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 对象编码为二进制帧
+     */
+    public BinaryMessage encode(Object payload) {
+        try {
+            return wrap(cborMapper.writeValueAsBytes(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.push.ws.impl;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.push.constant.WsConstants;
+import com.example.push.ws.Frame;
+import com.example.push.ws.FrameCodec;
+import com.example.push.ws.PayloadFormat;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 基于 Hutool JSON 的编解码, 会构建完整的 JSON 树
+ */
+@Component
+@ConditionalOnProperty(prefix = "push", name = "codec", havingValue = "hutool")
+public class HutoolFrameCodecImpl implements FrameCodec {
+
+    private final CborFrameSupport cborFrameSupport;
+
+    public HutoolFrameCodecImpl(CborFrameSupport cborFrameSupport) {
+        this.cborFrameSupport = cborFrameSupport;
+    }
+
+    @Override
+    public Frame decode(String text) {
+        return toFrame(JSONUtil.parseObj(text));
+    }
+
+    @Override
+    public Frame decode(byte[] bytes) throws IOException {
+        Map<?, ?> map = cborFrameSupport.getCborMapper().readValue(cborFrameSupport.unwrap(bytes), Map.class);
+        return toFrame(new JSONObject(map));
+    }
+
+    @Override
+    public WebSocketMessage<?> encode(Object payload, PayloadFormat format) {
+        if (format == PayloadFormat.CBOR) {
+            return cborFrameSupport.encode(payload);
+        }
+        return new TextMessage(JSONUtil.toJsonStr(payload));
+    }
+
+    private static Frame toFrame(JSONObject param) {
+        Frame frame = new Frame();
+        addTopics(param.get(WsConstants.subType), frame.getSub());
+        addTopics(param.get(WsConstants.unSubType), frame.getUnSub());
+        addTopics(param.get(WsConstants.resyncType), frame.getResync());
+        JSONObject data = param.getJSONObject(WsConstants.data);
+        if (data != null) {
+            frame.setData(data);
+        }
+        String format = param.getStr(WsConstants.format);
+        if (format != null) {
+            frame.setFormat(PayloadFormat.valueOf(format.toUpperCase(Locale.ROOT)));
+        }
+        frame.setPing(param.getLong(WsConstants.ping));
+        return frame;
+    }
+
+    private static void addTopics(Object value, List<String> topics) {
+        if (value instanceof JSONArray) {
+            ((JSONArray) value).forEach(topic -> addTopics(topic, topics));
+        } else if (value instanceof CharSequence) {
+            topics.add(value.toString());
+        }
+    }
+}
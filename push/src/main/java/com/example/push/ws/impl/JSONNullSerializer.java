@@ -0,0 +1,26 @@
+package com.example.push.ws.impl;
+
+import cn.hutool.json.JSONNull;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Jackson 写出 Hutool 的 {@link JSONNull} 时输出 null
+ */
+class JSONNullSerializer extends StdSerializer<JSONNull> {
+
+    static final SimpleModule MODULE = new SimpleModule().addSerializer(JSONNull.class, new JSONNullSerializer());
+
+    private JSONNullSerializer() {
+        super(JSONNull.class);
+    }
+
+    @Override
+    public void serialize(JSONNull value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeNull();
+    }
+}
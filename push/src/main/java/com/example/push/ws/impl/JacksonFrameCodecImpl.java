@@ -0,0 +1,170 @@
+package com.example.push.ws.impl;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONConfig;
+import cn.hutool.json.JSONNull;
+import cn.hutool.json.JSONObject;
+import com.example.push.constant.WsConstants;
+import com.example.push.ws.Frame;
+import com.example.push.ws.FrameCodec;
+import com.example.push.ws.PayloadFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 基于 Jackson streaming 的编解码
+ * 解析时只读取 sub/unSub/resync/data/format/ping, 其他字段直接跳过;
+ * 编码时直接把 Hutool JSON(Map/List) 写入线程复用的字节缓冲区, 不经过中间字符串;
+ * 二进制帧使用相同的解析逻辑读取 CBOR
+ */
+@Component
+@ConditionalOnProperty(prefix = "push", name = "codec", havingValue = "jackson", matchIfMissing = true)
+public class JacksonFrameCodecImpl implements FrameCodec {
+
+    /**
+     * 每个线程复用的输出缓冲区
+     */
+    private static final ThreadLocal<ByteArrayBuilder> BUFFER = ThreadLocal.withInitial(() -> new ByteArrayBuilder(4096));
+
+    /**
+     * 数组保留 null 元素, 与 Hutool 解析结果保持一致
+     */
+    private static final JSONConfig ARRAY_CONFIG = JSONConfig.create().setIgnoreNullValue(false);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(JSONNullSerializer.MODULE);
+
+    private final CborFrameSupport cborFrameSupport;
+
+    public JacksonFrameCodecImpl(CborFrameSupport cborFrameSupport) {
+        this.cborFrameSupport = cborFrameSupport;
+    }
+
+    @Override
+    public Frame decode(String text) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(text)) {
+            return readFrame(parser);
+        }
+    }
+
+    @Override
+    public Frame decode(byte[] bytes) throws IOException {
+        byte[] cbor = cborFrameSupport.unwrap(bytes);
+        try (JsonParser parser = cborFrameSupport.getCborMapper().getFactory().createParser(cbor)) {
+            return readFrame(parser);
+        }
+    }
+
+    @Override
+    public WebSocketMessage<?> encode(Object payload, PayloadFormat format) {
+        if (format == PayloadFormat.CBOR) {
+            return cborFrameSupport.encode(payload);
+        }
+        ByteArrayBuilder buffer = BUFFER.get();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            objectMapper.writeValue(generator, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return new TextMessage(buffer.toByteArray());
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * 文本和 CBOR 共用同一套流式解析
+     */
+    private static Frame readFrame(JsonParser parser) throws IOException {
+        Frame frame = new Frame();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("请求不是JSON对象");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (WsConstants.subType.equals(field)) {
+                readTopics(parser, token, frame.getSub());
+            } else if (WsConstants.unSubType.equals(field)) {
+                readTopics(parser, token, frame.getUnSub());
+            } else if (WsConstants.resyncType.equals(field)) {
+                readTopics(parser, token, frame.getResync());
+            } else if (WsConstants.data.equals(field) && token == JsonToken.START_OBJECT) {
+                frame.setData(readObject(parser));
+            } else if (WsConstants.format.equals(field) && token == JsonToken.VALUE_STRING) {
+                frame.setFormat(PayloadFormat.valueOf(parser.getText().toUpperCase(Locale.ROOT)));
+            } else if (WsConstants.ping.equals(field) && token.isNumeric()) {
+                frame.setPing(parser.getLongValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return frame;
+    }
+
+    private static void readTopics(JsonParser parser, JsonToken token, List<String> topics) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            topics.add(parser.getText());
+        } else if (token == JsonToken.START_ARRAY) {
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_STRING) {
+                    topics.add(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    /**
+     * 直接由 token 构建 JSONObject, 不经过中间 Map
+     */
+    private static JSONObject readObject(JsonParser parser) throws IOException {
+        JSONObject object = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            object.set(field, readValue(parser, parser.nextToken()));
+        }
+        return object;
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                JSONArray array = new JSONArray(ARRAY_CONFIG);
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    array.add(readValue(parser, token));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                //与 Hutool 解析结果保持一致
+                return parser.getDecimalValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return JSONNull.NULL;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.push.ws.impl;
+
+import cn.hutool.json.JSON;
+import com.example.push.ws.Topic;
+import com.example.push.ws.TopicCoordinator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 单节点计算: 每个节点计算自己的所有主题
+ */
+@Service
+@ConditionalOnProperty(prefix = "push.cluster", name = "shared-compute", havingValue = "false", matchIfMissing = true)
+public class LocalTopicCoordinatorImpl implements TopicCoordinator {
+
+    @Override
+    public boolean owns(String handler, Topic topic) {
+        return true;
+    }
+
+    @Override
+    public void register(String handler, Collection<Topic> topics) {
+    }
+
+    @Override
+    public Collection<Topic> assigned(String handler) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void publish(String handler, Map<Topic, JSON> payloads) {
+    }
+}
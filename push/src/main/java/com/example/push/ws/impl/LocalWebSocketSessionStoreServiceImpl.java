@@ -1,37 +1,207 @@
 package com.example.push.ws.impl;
 
-import cn.hutool.cache.Cache;
-import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.json.JSON;
-import cn.hutool.json.JSONUtil;
+import com.example.push.config.PushProperties;
+import com.example.push.ws.FrameCodec;
+import com.example.push.ws.HeartbeatMonitor;
+import com.example.push.ws.OutboundSession;
+import com.example.push.ws.PayloadFormat;
+import com.example.push.ws.PushExecutors;
+import com.example.push.ws.PushMessage;
+import com.example.push.ws.PushMetrics;
+import com.example.push.ws.SessionStat;
+import com.example.push.ws.TimerWheel;
+import com.example.push.ws.TopicGroup;
 import com.example.push.ws.WebSocketSessionStoreService;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.socket.TextMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
 @Slf4j
+@Service
+@ConditionalOnProperty(prefix = "push.cluster", name = "store", havingValue = "local", matchIfMissing = true)
 public class LocalWebSocketSessionStoreServiceImpl implements WebSocketSessionStoreService {
 
+    /**
+     * 再平衡时发送重连提示后多久关闭连接(毫秒)
+     */
+    private static final long SHED_CLOSE_DELAY = 1000;
+
     /**
      * Key: sessionId
-     * value: websocketSession
+     * value: 带出站队列的连接
      */
-    private static final Cache<String, WebSocketSession> managerSessionStore = new TimedCache<>(1000*60*60*8); // 缓存时间1小时
+    private final Map<String, OutboundSession> managerSessionStore = new ConcurrentHashMap<>();
+
+    private final PushProperties.Outbound outbound;
+
+    private final FrameCodec frameCodec;
+
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    private final PushMetrics metrics;
+
+    /**
+     * 发送线程池, 各连接的出站队列在这里写出
+     */
+    private final ExecutorService writer;
+
+    public LocalWebSocketSessionStoreServiceImpl(PushProperties pushProperties, FrameCodec frameCodec,
+                                                 HeartbeatMonitor heartbeatMonitor, PushExecutors pushExecutors,
+                                                 PushMetrics metrics) {
+        this.outbound = pushProperties.getOutbound();
+        this.frameCodec = frameCodec;
+        this.heartbeatMonitor = heartbeatMonitor;
+        this.metrics = metrics;
+        metrics.sessions(managerSessionStore, Map::size);
+        this.writer = pushExecutors.newExecutor("ws-writer-", outbound.getWriterThreads());
+    }
+
+    @Override
+    public void register(WebSocketSession session) {
+        OutboundSession outboundSession = new OutboundSession(session, writer,
+                outbound.getSendTimeLimit(), outbound.getBufferSizeLimit(), outbound.getOverflowPolicy(), metrics);
+        managerSessionStore.put(outboundSession.getId(), outboundSession);
+        heartbeatMonitor.watch(session, outboundSession);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        OutboundSession outboundSession = managerSessionStore.remove(sessionId);
+        if (outboundSession != null) {
+            outboundSession.discard();
+        }
+    }
+
+    @Override
+    public void touch(String sessionId) {
+        OutboundSession outboundSession = managerSessionStore.get(sessionId);
+        if (outboundSession != null) {
+            outboundSession.touch();
+        }
+    }
+
+    @Override
+    public void setFormat(String sessionId, PayloadFormat format) {
+        OutboundSession outboundSession = managerSessionStore.get(sessionId);
+        if (outboundSession != null) {
+            outboundSession.setFormat(format);
+        }
+    }
 
     @Override
-    @SneakyThrows
     public Boolean sendMessage(String sessionId, JSON json) {
-        WebSocketSession webSocketSession = managerSessionStore.get(sessionId, false);
-        log.debug("sessionId: {},连接:{} 给用户推送数据: {}", sessionId, webSocketSession, json);
-        if (ObjectUtil.isNotEmpty(webSocketSession)) {
-            TextMessage textMessage = new TextMessage(JSONUtil.toJsonStr(json));
-            webSocketSession.sendMessage(textMessage);
-        } else {
-            log.error("当前 sessionId: {} 连接为空: {}", sessionId, webSocketSession);
+        OutboundSession outboundSession = managerSessionStore.get(sessionId);
+        if (ObjectUtil.isEmpty(outboundSession)) {
+            log.error("当前 sessionId: {} 连接为空: {}", sessionId, outboundSession);
+            return false;
         }
-        return true;
+        return outboundSession.offer(encode(json, outboundSession), null);
+    }
+
+    @Override
+    public Boolean sendMessage(String sessionId, WebSocketMessage<?> message) {
+        return offer(sessionId, message, null);
+    }
+
+    @Override
+    public void sendMessage(TopicGroup group, PushMessage message) {
+        group.getSessionIds().forEach(sessionId -> {
+            OutboundSession outboundSession = managerSessionStore.get(sessionId);
+            if (outboundSession == null) {
+                log.error("当前 sessionId: {} 连接为空", sessionId);
+                return;
+            }
+            outboundSession.offer(message.get(outboundSession.getFormat()), message.getConflationKey());
+        });
+    }
+
+    @Override
+    public List<SessionStat> stats() {
+        List<SessionStat> stats = new ArrayList<>(managerSessionStore.size());
+        managerSessionStore.values().forEach(session -> stats.add(session.stat()));
+        return stats;
+    }
+
+    @Override
+    public int count() {
+        return managerSessionStore.size();
+    }
+
+    @Override
+    public int shed(int count, Supplier<JSON> hint) {
+        int shed = 0;
+        for (OutboundSession outboundSession : managerSessionStore.values()) {
+            if (shed >= count) {
+                break;
+            }
+            if (!outboundSession.offer(encode(hint.get(), outboundSession), null)) {
+                continue;
+            }
+            //留出发送重连提示的时间再关闭
+            TimerWheel.shared().schedule(() -> outboundSession.close(CloseStatus.SERVICE_RESTARTED, "连接数再平衡"), SHED_CLOSE_DELAY);
+            shed++;
+        }
+        return shed;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writer.shutdown();
+    }
+
+    /**
+     * 本节点上的连接
+     *
+     * @return 不在本节点时返回null
+     */
+    protected OutboundSession local(String sessionId) {
+        return managerSessionStore.get(sessionId);
+    }
+
+    /**
+     * 本节点所有连接的 sessionId
+     */
+    protected List<String> localIds() {
+        List<String> ids = new ArrayList<>(managerSessionStore.size());
+        managerSessionStore.values().forEach(session -> ids.add(session.getId()));
+        return ids;
+    }
+
+    protected FrameCodec getFrameCodec() {
+        return frameCodec;
+    }
+
+    protected PushMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Boolean offer(String sessionId, WebSocketMessage<?> message, Object conflationKey) {
+        OutboundSession outboundSession = managerSessionStore.get(sessionId);
+        log.debug("sessionId: {},连接:{} 给用户推送数据: {}", sessionId, outboundSession, message.getPayload());
+        if (ObjectUtil.isEmpty(outboundSession)) {
+            log.error("当前 sessionId: {} 连接为空: {}", sessionId, outboundSession);
+            return false;
+        }
+        return outboundSession.offer(message, conflationKey);
+    }
+
+    /**
+     * 按连接的格式编码单条消息, 与按主题推送一样经过 {@link PushMessage} 记录编码耗时
+     */
+    private WebSocketMessage<?> encode(Object payload, OutboundSession outboundSession) {
+        return new PushMessage(payload, frameCodec, metrics, null).get(outboundSession.getFormat());
     }
 }
@@ -0,0 +1,328 @@
+package com.example.push.ws.impl;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONUtil;
+import com.example.common.util.RedisUtil;
+import com.example.push.config.PushNode;
+import com.example.push.config.PushProperties;
+import com.example.push.constant.WsConstants;
+import com.example.push.handler.AbstractTopicWebSocketHandler;
+import com.example.push.handler.BaseWebSocketHandler;
+import com.example.push.ws.Topic;
+import com.example.push.ws.TopicBroadcast;
+import com.example.push.ws.TopicCoordinator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多节点共享计算
+ * 按注册中心中的 push 实例列表用 rendezvous hash 划分主题, 每个主题只由一个节点计算,
+ * 计算结果通过 redis 广播, 实例上下线后重新划分
+ * <p>
+ * 各节点把有连接订阅的主题登记到 redis 的 ws:topics:{handler} 中, 负责的节点即使本地没有连接也会计算
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "push.cluster", name = "shared-compute", havingValue = "true")
+public class RedisTopicCoordinatorImpl implements TopicCoordinator {
+
+    private static final String CHANNEL = StrUtil.format(WsConstants.FORMAT, "topic", "broadcast");
+
+    private final RedisUtil redisUtil;
+
+    private final PushNode pushNode;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final RedisSerializer<?> serializer;
+
+    private final Map<String, BaseWebSocketHandler> handlers;
+
+    private final PushProperties.Cluster cluster;
+
+    private final String serviceId;
+
+    /**
+     * 当前节点列表, 按节点 id 排序
+     */
+    private volatile Nodes nodes;
+
+    /**
+     * key: handler
+     * value: 上次登记的时间和主题集合的哈希
+     */
+    private final Map<String, long[]> registered = new ConcurrentHashMap<>();
+
+    /**
+     * key: handler
+     * value: 分配给当前节点的主题, 定期从 redis 刷新
+     */
+    private final Map<String, Assigned> assigned = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService refresher;
+
+    public RedisTopicCoordinatorImpl(RedisUtil redisUtil, PushNode pushNode, DiscoveryClient discoveryClient,
+                                     RedisMessageListenerContainer pushRedisMessageListenerContainer,
+                                     RedisTemplate<String, Object> redisTemplate,
+                                     @Lazy Map<String, BaseWebSocketHandler> handlers,
+                                     PushProperties pushProperties,
+                                     @Value("${spring.application.name}") String serviceId) {
+        this.redisUtil = redisUtil;
+        this.pushNode = pushNode;
+        this.discoveryClient = discoveryClient;
+        this.listenerContainer = pushRedisMessageListenerContainer;
+        this.serializer = redisTemplate.getValueSerializer();
+        this.handlers = handlers;
+        this.cluster = pushProperties.getCluster();
+        this.serviceId = serviceId;
+        this.nodes = new Nodes(Collections.singletonList(pushNode.getId()), pushNode.getId());
+    }
+
+    private static String registryKey(String handler) {
+        return StrUtil.format(WsConstants.FORMAT, "topics", handler);
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                receive((TopicBroadcast) serializer.deserialize(message.getBody()));
+            } catch (Exception e) {
+                log.error("处理主题广播失败", e);
+            }
+        }, new ChannelTopic(CHANNEL));
+        refresher = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("ws-nodes-").setDaemon(true).build());
+        refresher.scheduleWithFixedDelay(this::refreshNodes, 0, cluster.getRegistryRefresh(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 注册中心心跳时立即刷新节点列表, 不等待定时刷新
+     */
+    @EventListener(HeartbeatEvent.class)
+    public void onHeartbeat() {
+        refreshNodes();
+    }
+
+    @Override
+    public boolean owns(String handler, Topic topic) {
+        Nodes current = nodes;
+        if (current.ids.size() <= 1) {
+            return true;
+        }
+        long topicHash = MurmurHash.hash64(handler + '#' + topic.getName() + '#' + topic.getParamKey());
+        int owner = 0;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < current.hashes.length; i++) {
+            long score = mix(current.hashes[i] ^ topicHash);
+            if (score > max) {
+                max = score;
+                owner = i;
+            }
+        }
+        return owner == current.self;
+    }
+
+    @Override
+    public void register(String handler, Collection<Topic> topics) {
+        long now = System.currentTimeMillis();
+        long[] last = registered.get(handler);
+        long hash = hash(topics);
+        //主题集合变化时立即登记, 否则按刷新间隔续期
+        if (topics.isEmpty() || last != null && last[1] == hash && now - last[0] < cluster.getRegistryRefresh()) {
+            return;
+        }
+        boolean changed = last == null || last[1] != hash;
+        registered.put(handler, new long[]{now, hash});
+        Long expireAt = now + cluster.getRegistryRefresh() * 3;
+        Map<String, Object> fields = new HashMap<>(topics.size() * 2);
+        for (Topic topic : topics) {
+            fields.put(new JSONArray().set(topic.getName()).set(topic.getParamKey()).toString(), expireAt);
+        }
+        try {
+            redisUtil.hmset(registryKey(handler), fields, TimeUnit.MILLISECONDS.toSeconds(cluster.getRegistryRefresh() * 3));
+            //通知其他节点刷新分配的主题, 新主题不用等到缓存过期才开始计算
+            if (changed && nodes.ids.size() > 1) {
+                redisUtil.publish(CHANNEL, new TopicBroadcast(pushNode.getId(), handler, Collections.emptyList()));
+            }
+        } catch (Exception e) {
+            log.error("登记主题失败, handler: {}", handler, e);
+        }
+    }
+
+    @Override
+    public Collection<Topic> assigned(String handler) {
+        long now = System.currentTimeMillis();
+        Assigned cached = assigned.get(handler);
+        if (cached != null && cached.nodes == nodes && now - cached.time < cluster.getRegistryRefresh()) {
+            return cached.topics;
+        }
+        List<Topic> topics = new ArrayList<>();
+        List<Object> expired = new ArrayList<>();
+        try {
+            for (Map.Entry<Object, Object> entry : redisUtil.hmget(registryKey(handler)).entrySet()) {
+                if (((Number) entry.getValue()).longValue() < now) {
+                    expired.add(entry.getKey());
+                    continue;
+                }
+                JSONArray field = JSONUtil.parseArray(entry.getKey());
+                Topic topic = Topic.restore(field.getStr(0), field.getStr(1));
+                if (owns(handler, topic)) {
+                    topics.add(topic);
+                }
+            }
+            if (!expired.isEmpty()) {
+                redisUtil.hdel(registryKey(handler), expired.toArray());
+            }
+        } catch (Exception e) {
+            log.error("读取登记的主题失败, handler: {}", handler, e);
+            return cached == null ? Collections.emptyList() : cached.topics;
+        }
+        assigned.put(handler, new Assigned(nodes, now, topics));
+        return topics;
+    }
+
+    @Override
+    public void publish(String handler, Map<Topic, JSON> payloads) {
+        if (payloads.isEmpty() || nodes.ids.size() <= 1) {
+            return;
+        }
+        List<TopicBroadcast.Item> items = new ArrayList<>(payloads.size());
+        //每个主题只序列化一次, 各节点收到后按连接格式编码
+        payloads.forEach((topic, payload) ->
+                items.add(new TopicBroadcast.Item(topic.getName(), topic.getParamKey(), payload.toString())));
+        try {
+            redisUtil.publish(CHANNEL, new TopicBroadcast(pushNode.getId(), handler, items));
+        } catch (Exception e) {
+            log.error("广播主题数据失败, handler: {}", handler, e);
+        }
+    }
+
+    private void receive(TopicBroadcast broadcast) {
+        if (pushNode.getId().equals(broadcast.getNode())) {
+            return;
+        }
+        //没有数据的广播表示登记的主题有变化
+        if (broadcast.getItems().isEmpty()) {
+            assigned.remove(broadcast.getHandler());
+            return;
+        }
+        BaseWebSocketHandler handler = handlers.get(broadcast.getHandler());
+        if (!(handler instanceof AbstractTopicWebSocketHandler)) {
+            return;
+        }
+        Map<Topic, JSON> payloads = new HashMap<>(broadcast.getItems().size() * 2);
+        for (TopicBroadcast.Item item : broadcast.getItems()) {
+            payloads.put(Topic.restore(item.getName(), item.getParamKey()), JSONUtil.parse(item.getJson()));
+        }
+        ((AbstractTopicWebSocketHandler) handler).receive(payloads);
+    }
+
+    private synchronized void refreshNodes() {
+        try {
+            TreeSet<String> ids = new TreeSet<>();
+            ids.add(pushNode.getId());
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                ids.add(PushNode.id(instance));
+            }
+            if (!ids.equals(new TreeSet<>(nodes.ids))) {
+                log.info("主题计算节点变更: {} -> {}", nodes.ids, ids);
+                nodes = new Nodes(new ArrayList<>(ids), pushNode.getId());
+            }
+        } catch (Exception e) {
+            log.error("刷新 push 节点列表失败", e);
+        }
+    }
+
+    /**
+     * 与顺序无关的主题集合哈希, 主题数不变但替换了主题时也会变化
+     */
+    private static long hash(Collection<Topic> topics) {
+        long hash = topics.size();
+        for (Topic topic : topics) {
+            hash += mix(topic.hashCode());
+        }
+        return hash;
+    }
+
+    /**
+     * 64 位哈希混淆, 使节点与主题的组合得分分布均匀
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static class Nodes {
+
+        private final List<String> ids;
+
+        private final long[] hashes;
+
+        /**
+         * 当前节点在列表中的下标
+         */
+        private final int self;
+
+        private Nodes(List<String> ids, String self) {
+            this.ids = ids;
+            this.hashes = new long[ids.size()];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = MurmurHash.hash64(ids.get(i));
+            }
+            this.self = ids.indexOf(self);
+        }
+    }
+
+    private static class Assigned {
+
+        private final Nodes nodes;
+
+        private final long time;
+
+        private final List<Topic> topics;
+
+        private Assigned(Nodes nodes, long time, List<Topic> topics) {
+            this.nodes = nodes;
+            this.time = time;
+            this.topics = topics;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.push.ws.impl;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONUtil;
+import com.example.common.util.RedisUtil;
+import com.example.push.config.PushNode;
+import com.example.push.config.PushProperties;
+import com.example.push.constant.WsConstants;
+import com.example.push.ws.FrameCodec;
+import com.example.push.ws.HeartbeatMonitor;
+import com.example.push.ws.OutboundSession;
+import com.example.push.ws.PushExecutors;
+import com.example.push.ws.PushMetrics;
+import com.example.push.ws.RemoteMessage;
+import com.example.push.ws.SessionIdInterceptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多节点连接存储
+ * redis 中保存 sessionId -> 节点, 不在本节点的连接按目标节点合并后通过 redis 发布到该节点的频道
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "push.cluster", name = "store", havingValue = "redis")
+public class RedisWebSocketSessionStoreServiceImpl extends LocalWebSocketSessionStoreServiceImpl {
+
+    /**
+     * 连接所在节点的过期时间(秒), 本节点的连接定期续期, 节点宕机后遗留的记录在此时间后失效
+     */
+    private static final long SESSION_EXPIRE = 60L * 10;
+
+    /**
+     * 续期间隔(秒), 续期失败一两次也不会过期
+     */
+    private static final long SESSION_REFRESH = SESSION_EXPIRE / 3;
+
+    private final RedisUtil redisUtil;
+
+    private final PushNode pushNode;
+
+    private final PushProperties.Cluster cluster;
+
+    /**
+     * 其他节点连接所在节点的本地缓存, 避免每次发送都查询 redis; 写入后一分钟过期, 限制条数避免查询过的连接一直留在内存
+     */
+    private final Cache<String, String> nodeCache = Caffeine.newBuilder()
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .maximumSize(100_000)
+            .build();
+
+    /**
+     * key: 目标节点
+     * value: 待转发的消息
+     */
+    private final Map<String, Queue<RemoteMessage>> outbox = new ConcurrentHashMap<>();
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final RedisSerializer<?> serializer;
+
+    private ScheduledExecutorService flusher;
+
+    public RedisWebSocketSessionStoreServiceImpl(PushProperties pushProperties, FrameCodec frameCodec,
+                                                 HeartbeatMonitor heartbeatMonitor, PushExecutors pushExecutors,
+                                                 RedisUtil redisUtil, PushNode pushNode,
+                                                 RedisMessageListenerContainer pushRedisMessageListenerContainer,
+                                                 RedisTemplate<String, Object> redisTemplate, PushMetrics metrics) {
+        super(pushProperties, frameCodec, heartbeatMonitor, pushExecutors, metrics);
+        this.redisUtil = redisUtil;
+        this.pushNode = pushNode;
+        this.cluster = pushProperties.getCluster();
+        this.listenerContainer = pushRedisMessageListenerContainer;
+        this.serializer = redisTemplate.getValueSerializer();
+    }
+
+    /**
+     * 节点接收转发消息的频道
+     */
+    public static String channel(String nodeId) {
+        return StrUtil.format(WsConstants.FORMAT, "node", nodeId);
+    }
+
+    private static String sessionKey(String sessionId) {
+        return StrUtil.format(WsConstants.FORMAT, "session", sessionId);
+    }
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void start() {
+        //订阅本节点的频道
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                receive((List<RemoteMessage>) serializer.deserialize(message.getBody()));
+            } catch (Exception e) {
+                log.error("处理其他节点转发的消息失败", e);
+            }
+        }, new ChannelTopic(channel(pushNode.getId())));
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("ws-remote-").setDaemon(true).build());
+        flusher.scheduleWithFixedDelay(this::flush, cluster.getFlushInterval(), cluster.getFlushInterval(), TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::refresh, SESSION_REFRESH, SESSION_REFRESH, TimeUnit.SECONDS);
+    }
+
+    @Override
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        flush();
+        super.destroy();
+    }
+
+    @Override
+    public void register(WebSocketSession session) {
+        super.register(session);
+        redisUtil.set(sessionKey(SessionIdInterceptor.id(session)), pushNode.getId(), SESSION_EXPIRE);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        super.remove(sessionId);
+        redisUtil.del(sessionKey(sessionId));
+    }
+
+    @Override
+    public Boolean sendMessage(String sessionId, JSON json) {
+        if (local(sessionId) != null) {
+            return super.sendMessage(sessionId, json);
+        }
+        return forward(new RemoteMessage(sessionId, JSONUtil.toJsonStr(json), null, null));
+    }
+
+    @Override
+    public Boolean sendMessage(String sessionId, WebSocketMessage<?> message) {
+        if (local(sessionId) != null) {
+            return super.sendMessage(sessionId, message);
+        }
+        if (message instanceof BinaryMessage) {
+            ByteBuffer payload = ((BinaryMessage) message).getPayload().duplicate();
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            return forward(new RemoteMessage(sessionId, null, null, bytes));
+        }
+        if (message instanceof TextMessage) {
+            return forward(new RemoteMessage(sessionId, null, ((TextMessage) message).getPayload(), null));
+        }
+        //ping/pong 等控制帧只对本节点的连接有意义
+        log.error("不支持转发的消息类型: {}, sessionId: {}", message.getClass().getSimpleName(), sessionId);
+        return false;
+    }
+
+    /**
+     * 接收其他节点转发的消息, 只发送给本节点的连接
+     */
+    private void receive(List<RemoteMessage> messages) {
+        for (RemoteMessage message : messages) {
+            OutboundSession outboundSession = local(message.getSessionId());
+            if (outboundSession == null) {
+                log.error("转发的 sessionId: {} 不在当前节点: {}", message.getSessionId(), pushNode.getId());
+                continue;
+            }
+            if (message.getJson() != null) {
+                super.sendMessage(message.getSessionId(), JSONUtil.parse(message.getJson()));
+            } else if (message.getBinary() != null) {
+                super.sendMessage(message.getSessionId(), new BinaryMessage(message.getBinary()));
+            } else {
+                super.sendMessage(message.getSessionId(), new TextMessage(message.getText()));
+            }
+        }
+    }
+
+    private Boolean forward(RemoteMessage message) {
+        String node = node(message.getSessionId());
+        if (node == null || node.equals(pushNode.getId())) {
+            log.error("当前 sessionId: {} 连接为空", message.getSessionId());
+            return false;
+        }
+        outbox.computeIfAbsent(node, k -> new ConcurrentLinkedQueue<>()).add(message);
+        return true;
+    }
+
+    private String node(String sessionId) {
+        String node = nodeCache.getIfPresent(sessionId);
+        if (node == null) {
+            Object value = redisUtil.get(sessionKey(sessionId));
+            if (value != null) {
+                node = value.toString();
+                nodeCache.put(sessionId, node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 本节点连接所在节点的记录重新写入并续期, 按 batchSize 分批, 每批一次往返;
+     * 用 set 而不是 expire, redis 重启或记录被误删后也能恢复
+     */
+    private void refresh() {
+        Map<String, Object> batch = new HashMap<>();
+        for (String sessionId : localIds()) {
+            batch.put(sessionKey(sessionId), pushNode.getId());
+            if (batch.size() >= cluster.getBatchSize()) {
+                refresh(batch);
+                batch = new HashMap<>();
+            }
+        }
+        refresh(batch);
+    }
+
+    private void refresh(Map<String, Object> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            redisUtil.mset(batch, SESSION_EXPIRE);
+        } catch (Exception e) {
+            log.error("续期连接所在节点失败, {} 个连接", batch.size(), e);
+        }
+    }
+
+    /**
+     * 每个目标节点的消息合并为一批发布
+     */
+    private void flush() {
+        outbox.forEach((node, queue) -> {
+            while (!queue.isEmpty()) {
+                ArrayList<RemoteMessage> batch = new ArrayList<>(Math.min(queue.size(), cluster.getBatchSize()));
+                RemoteMessage message;
+                while (batch.size() < cluster.getBatchSize() && (message = queue.poll()) != null) {
+                    batch.add(message);
+                }
+                try {
+                    redisUtil.publish(channel(node), batch);
+                } catch (Exception e) {
+                    log.error("转发消息到节点: {} 失败, 丢弃 {} 条", node, batch.size(), e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.push.ws.reactive;
+
+import com.example.push.ws.SessionIdInterceptor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 把响应式连接适配为 servlet 的 {@link WebSocketSession}, 使出站队列、心跳、连接存储和 handler 无需区分入口
+ * <p>
+ * 发送的消息写入有界的 {@link Sinks.Many}, Netty 按连接可写状态请求数据;
+ * 缓冲区满时发送线程等待 Netty 请求, 与 Tomcat 阻塞发送一致, 慢连接由出站队列的发送超时处理
+ */
+public class ReactiveSessionAdapter implements WebSocketSession {
+
+    /**
+     * 缓冲区满时每次等待的毫秒数
+     */
+    private static final long WAIT_MILLIS = 100;
+
+    private final org.springframework.web.reactive.socket.WebSocketSession delegate;
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    private final Sinks.Many<org.springframework.web.reactive.socket.WebSocketMessage> sink;
+
+    private final Object demand = new Object();
+
+    private volatile boolean open = true;
+
+    /**
+     * 握手时的登录用户
+     */
+    private volatile Principal principal;
+
+    public ReactiveSessionAdapter(org.springframework.web.reactive.socket.WebSocketSession delegate, int sendBuffer) {
+        this.delegate = delegate;
+        this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<org.springframework.web.reactive.socket.WebSocketMessage>get(sendBuffer).get());
+        this.attributes.putAll(delegate.getAttributes());
+        SessionIdInterceptor.assign(attributes);
+        delegate.getHandshakeInfo().getPrincipal().subscribe(p -> principal = p);
+    }
+
+    /**
+     * 待写出的消息, 交给 {@link org.springframework.web.reactive.socket.WebSocketSession#send}
+     */
+    public Flux<org.springframework.web.reactive.socket.WebSocketMessage> outbound() {
+        return sink.asFlux().doOnRequest(n -> signal());
+    }
+
+    /**
+     * 连接已关闭, 结束发送并唤醒等待的发送线程
+     */
+    public void closed() {
+        open = false;
+        sink.tryEmitComplete();
+        signal();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        org.springframework.web.reactive.socket.WebSocketMessage frame = convert(message);
+        while (true) {
+            if (!open) {
+                release(frame);
+                throw new IOException("连接已关闭");
+            }
+            Sinks.EmitResult result = sink.tryEmitNext(frame);
+            if (result.isSuccess()) {
+                return;
+            }
+            if (result == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                continue;
+            }
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                await();
+                continue;
+            }
+            release(frame);
+            throw new IOException("发送失败: " + result);
+        }
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public URI getUri() {
+        return getHandshakeInfo().getUri();
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return getHandshakeInfo().getHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * 握手时的登录用户; 响应式入口目前不做认证, 始终为null, 限流按客户端 ip 计算
+     */
+    @Override
+    public Principal getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return getHandshakeInfo().getRemoteAddress();
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return getHandshakeInfo().getSubProtocol();
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && delegate.isOpen();
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        delegate.close(new org.springframework.web.reactive.socket.CloseStatus(status.getCode(), status.getReason()))
+                .subscribe();
+        closed();
+    }
+
+    private HandshakeInfo getHandshakeInfo() {
+        return delegate.getHandshakeInfo();
+    }
+
+    private org.springframework.web.reactive.socket.WebSocketMessage convert(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage) {
+            //编码器生成的文本消息是 utf-8 字节, 直接包装避免再转换为字符串
+            DataBuffer text = delegate.bufferFactory().wrap(((TextMessage) message).asBytes());
+            return new org.springframework.web.reactive.socket.WebSocketMessage(
+                    org.springframework.web.reactive.socket.WebSocketMessage.Type.TEXT, text);
+        }
+        ByteBuffer payload = ((ByteBuffer) message.getPayload()).duplicate();
+        DataBuffer buffer = delegate.bufferFactory().wrap(payload);
+        if (message instanceof BinaryMessage) {
+            return delegate.binaryMessage(factory -> buffer);
+        }
+        if (message instanceof PingMessage) {
+            return delegate.pingMessage(factory -> buffer);
+        }
+        if (message instanceof PongMessage) {
+            return delegate.pongMessage(factory -> buffer);
+        }
+        throw new IllegalArgumentException("不支持的消息类型: " + message.getClass());
+    }
+
+    private static void release(org.springframework.web.reactive.socket.WebSocketMessage frame) {
+        frame.release();
+    }
+
+    private void await() throws IOException {
+        synchronized (demand) {
+            try {
+                demand.wait(WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待发送被中断", e);
+            }
+        }
+    }
+
+    private void signal() {
+        synchronized (demand) {
+            demand.notifyAll();
+        }
+    }
+}
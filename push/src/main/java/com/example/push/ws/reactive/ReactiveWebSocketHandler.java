@@ -0,0 +1,89 @@
+package com.example.push.ws.reactive;
+
+import com.example.push.config.PushProperties;
+import com.example.push.ws.SessionIdInterceptor;
+import com.example.push.ws.WebSocketFactory;
+import com.example.push.ws.WebSocketSessionStoreService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 响应式 websocket 入口, 与 {@link com.example.push.ws.WebSocketHandler} 共用 {@link WebSocketFactory} 和连接存储
+ * 收到的消息先在 Netty 线程中拷贝出来, 再切换到 {@link #worker} 中按顺序处理, 避免订阅时的阻塞加载占用 Netty 线程
+ */
+@Slf4j
+public class ReactiveWebSocketHandler implements WebSocketHandler {
+
+    private final WebSocketSessionStoreService webSocketSessionStoreService;
+
+    private final WebSocketFactory webSocketFactory;
+
+    private final int sendBuffer;
+
+    private final Scheduler worker;
+
+    public ReactiveWebSocketHandler(WebSocketSessionStoreService webSocketSessionStoreService,
+                                    WebSocketFactory webSocketFactory, PushProperties pushProperties) {
+        this.webSocketSessionStoreService = webSocketSessionStoreService;
+        this.webSocketFactory = webSocketFactory;
+        this.sendBuffer = pushProperties.getReactive().getSendBuffer();
+        this.worker = Schedulers.boundedElastic();
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        ReactiveSessionAdapter adapter = new ReactiveSessionAdapter(session, sendBuffer);
+        String sessionId = SessionIdInterceptor.id(adapter);
+        webSocketSessionStoreService.register(adapter);
+        Mono<Void> input = session.receive()
+                .map(message -> copy(sessionId, message))
+                .publishOn(worker)
+                .doOnNext(message -> {
+                    webSocketSessionStoreService.touch(sessionId);
+                    if (message instanceof TextMessage) {
+                        webSocketFactory.process(adapter, (TextMessage) message);
+                    } else if (message instanceof BinaryMessage) {
+                        webSocketFactory.process(adapter, (BinaryMessage) message);
+                    }
+                })
+                .doOnError(e -> log.error("ws传输异常, sessionId:{}", sessionId, e))
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> adapter.closed())
+                .then();
+        Mono<Void> output = session.send(adapter.outbound());
+        return Mono.when(input, output)
+                .doFinally(signal -> {
+                    adapter.closed();
+                    webSocketFactory.close(sessionId);
+                    webSocketSessionStoreService.remove(sessionId);
+                });
+    }
+
+    /**
+     * 拷贝消息内容, 原消息的缓冲区在返回后由 Netty 释放
+     */
+    private static org.springframework.web.socket.WebSocketMessage<?> copy(String sessionId, WebSocketMessage message) {
+        switch (message.getType()) {
+            case TEXT:
+                return new TextMessage(message.getPayloadAsText());
+            case BINARY:
+                ByteBuffer payload = message.getPayload().asByteBuffer();
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                return new BinaryMessage(bytes);
+            default:
+                //ping 由 Netty 自动回复, pong 只用于刷新活跃时间
+                log.trace("sessionId:{} 收到 {}", sessionId, message.getType());
+                return new org.springframework.web.socket.PongMessage();
+        }
+    }
+}
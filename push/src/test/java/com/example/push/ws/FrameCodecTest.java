@@ -0,0 +1,158 @@
+package com.example.push.ws;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import com.example.push.config.PushProperties;
+import com.example.push.ws.impl.CborFrameSupport;
+import com.example.push.ws.impl.HutoolFrameCodecImpl;
+import com.example.push.ws.impl.JacksonFrameCodecImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Jackson 和 Hutool 两种编解码的结果必须一致
+ */
+class FrameCodecTest {
+
+    private static final String ENVELOPE = "{\"id\":\"1\",\"sub\":[\"market.btc.depth\",1,\"market.eth.depth\"],"
+            + "\"unSub\":\"market.ltc.depth\",\"resync\":[\"market.btc.depth\"],\"extra\":{\"a\":[1,{\"b\":null}]},"
+            + "\"data\":{\"symbol\":\"btc\",\"step\":2,\"tags\":[\"a\",null],\"nested\":{\"on\":true}},"
+            + "\"format\":\"cbor\",\"ping\":1650000000000}";
+
+    private PushProperties pushProperties;
+
+    private CborFrameSupport cborFrameSupport;
+
+    private FrameCodec jackson;
+
+    private FrameCodec hutool;
+
+    @BeforeEach
+    void setUp() {
+        pushProperties = new PushProperties();
+        pushProperties.getCompression().setThreshold(64);
+        pushProperties.getCompression().setMaxInflatedSize(1024);
+        cborFrameSupport = new CborFrameSupport(pushProperties);
+        jackson = new JacksonFrameCodecImpl(cborFrameSupport);
+        hutool = new HutoolFrameCodecImpl(cborFrameSupport);
+    }
+
+    @Test
+    void textEnvelopeDecodesTheSame() throws Exception {
+        Frame frame = jackson.decode(ENVELOPE);
+
+        assertThat(frame.getSub()).containsExactly("market.btc.depth", "market.eth.depth");
+        assertThat(frame.getUnSub()).containsExactly("market.ltc.depth");
+        assertThat(frame.getResync()).containsExactly("market.btc.depth");
+        assertThat(frame.getData().getStr("symbol")).isEqualTo("btc");
+        assertThat(frame.getData().getInt("step")).isEqualTo(2);
+        assertThat(frame.getData().getJSONArray("tags")).hasSize(2);
+        assertThat(frame.getData().getJSONObject("nested").getBool("on")).isTrue();
+        assertThat(frame.getFormat()).isEqualTo(PayloadFormat.CBOR);
+        assertThat(frame.getPing()).isEqualTo(1650000000000L);
+        assertThat(frame).isEqualTo(hutool.decode(ENVELOPE));
+    }
+
+    @Test
+    void unknownFieldsAndMissingFieldsAreSkipped() throws Exception {
+        String text = "{\"op\":\"sub\",\"args\":[{\"x\":1}],\"sub\":\"test_sub\"}";
+
+        Frame frame = jackson.decode(text);
+
+        assertThat(frame.getSub()).containsExactly("test_sub");
+        assertThat(frame.getUnSub()).isEmpty();
+        assertThat(frame.getData()).isEmpty();
+        assertThat(frame.getFormat()).isNull();
+        assertThat(frame.getPing()).isNull();
+        assertThat(frame).isEqualTo(hutool.decode(text));
+    }
+
+    @Test
+    void rawCborFrameDecodesTheSame() throws Exception {
+        byte[] frame = binary(envelope("sub", "test_sub"));
+
+        assertThat(frame[0]).isEqualTo((byte) 0);
+        assertThat(jackson.decode(frame).getSub()).containsExactly("test_sub");
+        assertThat(jackson.decode(frame)).isEqualTo(hutool.decode(frame));
+    }
+
+    @Test
+    void deflatedCborFrameDecodesTheSame() throws Exception {
+        Map<String, Object> envelope = envelope("sub", "test_sub");
+        envelope.put("data", Collections.singletonMap("padding", StrUtil.repeat('x', 200)));
+        byte[] frame = binary(envelope);
+
+        assertThat(frame[0]).isEqualTo((byte) 1);
+        assertThat(jackson.decode(frame).getData().getStr("padding")).hasSize(200);
+        assertThat(jackson.decode(frame)).isEqualTo(hutool.decode(frame));
+    }
+
+    @Test
+    void unknownCompressionFlagIsRejected() {
+        byte[] frame = binary(envelope("sub", "test_sub"));
+        frame[0] = 7;
+
+        assertThatThrownBy(() -> jackson.decode(frame)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> hutool.decode(frame)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> jackson.decode(new byte[0])).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void inflatedSizeIsCapped() {
+        Map<String, Object> envelope = envelope("sub", "test_sub");
+        envelope.put("data", Collections.singletonMap("padding", StrUtil.repeat('x', 4096)));
+        byte[] frame = binary(envelope);
+
+        assertThat(frame[0]).isEqualTo((byte) 1);
+        assertThat(frame.length).isLessThan(1024);
+        assertThatThrownBy(() -> jackson.decode(frame)).isInstanceOf(IOException.class).hasMessageContaining("1024");
+        assertThatThrownBy(() -> hutool.decode(frame)).isInstanceOf(IOException.class).hasMessageContaining("1024");
+    }
+
+    @Test
+    void truncatedDeflateIsRejected() {
+        Map<String, Object> envelope = envelope("sub", "test_sub");
+        envelope.put("data", Collections.singletonMap("padding", StrUtil.repeat('x', 200)));
+        byte[] frame = binary(envelope);
+
+        assertThatThrownBy(() -> jackson.decode(Arrays.copyOf(frame, frame.length - 4))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void encodedPayloadIsTheSame() throws Exception {
+        JSONObject payload = new JSONObject()
+                .set("topic", "market.btc.depth")
+                .set("ts", 1650000000000L)
+                .set("bids", Arrays.asList(Arrays.asList("1.5", "2"), Arrays.asList("1.4", "3")));
+
+        String jacksonText = (String) jackson.encode(payload).getPayload();
+        String hutoolText = (String) hutool.encode(payload).getPayload();
+        assertThat(new JSONObject(jacksonText)).isEqualTo(new JSONObject(hutoolText));
+
+        BinaryMessage jacksonCbor = (BinaryMessage) jackson.encode(payload, PayloadFormat.CBOR);
+        BinaryMessage hutoolCbor = (BinaryMessage) hutool.encode(payload, PayloadFormat.CBOR);
+        assertThat(jacksonCbor.getPayload()).isEqualTo(hutoolCbor.getPayload());
+        assertThat(cborFrameSupport.getCborMapper().readValue(cborFrameSupport.unwrap(jacksonCbor.getPayload().array()), Map.class))
+                .containsEntry("topic", "market.btc.depth");
+    }
+
+    private static Map<String, Object> envelope(String field, Object value) {
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put(field, value);
+        return envelope;
+    }
+
+    private byte[] binary(Map<String, Object> envelope) {
+        return cborFrameSupport.encode(envelope).getPayload().array();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.push.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboundSessionTest {
+
+    /**
+     * 每条消息 10 字节, 上限 30 字节即最多排队 3 条
+     */
+    private static final int BUFFER_SIZE_LIMIT = 30;
+
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    private final PushMetrics metrics = new PushMetrics(new SimpleMeterRegistry());
+
+    /**
+     * 手动执行的发送线程池, 不执行时消息一直留在队列中
+     */
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    /**
+     * 按顺序记录写出的消息
+     */
+    private final List<WebSocketMessage<?>> written = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Map<String, Object> attributes = new HashMap<>();
+        SessionIdInterceptor.assign(attributes);
+        when(session.getAttributes()).thenReturn(attributes);
+        doAnswer(invocation -> written.add(invocation.getArgument(0))).when(session).sendMessage(any());
+    }
+
+    @Test
+    void dropOldestKeepsNewestMessages() {
+        OutboundSession outbound = outbound(OverflowPolicy.DROP_OLDEST);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(outbound.offer(message(i), "topic")).isTrue();
+        }
+
+        assertThat(outbound.stat().getQueueDepth()).isEqualTo(3);
+        assertThat(outbound.stat().getBufferSize()).isEqualTo(30);
+        assertThat(outbound.stat().getDropped()).isEqualTo(2);
+        assertThat(drain()).containsExactly(message(2), message(3), message(4));
+        assertThat(outbound.stat().getSent()).isEqualTo(3);
+    }
+
+    @Test
+    void conflateKeepsLatestMessagePerKey() {
+        OutboundSession outbound = outbound(OverflowPolicy.CONFLATE);
+
+        outbound.offer(message(0), "a");
+        outbound.offer(message(1), "b");
+        outbound.offer(message(2), "a");
+        outbound.offer(message(3), null);
+        outbound.offer(message(4), "b");
+
+        assertThat(outbound.stat().getQueueDepth()).isEqualTo(3);
+        assertThat(outbound.stat().getDropped()).isEqualTo(2);
+        //替换后保留原来的排队位置
+        assertThat(drain()).containsExactly(message(2), message(4), message(3));
+    }
+
+    @Test
+    void conflateDropsOldestWhenKeysStillOverflow() {
+        OutboundSession outbound = outbound(OverflowPolicy.CONFLATE);
+
+        for (int i = 0; i < 4; i++) {
+            outbound.offer(message(i), "topic" + i);
+        }
+        outbound.offer(message(9), "topic0");
+        outbound.offer(message(8), "topic3");
+
+        assertThat(drain()).containsExactly(message(2), message(8), message(9));
+    }
+
+    @Test
+    void disconnectClosesOverflowingSession() throws Exception {
+        OutboundSession outbound = outbound(OverflowPolicy.DISCONNECT);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(outbound.offer(message(i), "topic")).isTrue();
+        }
+        assertThat(outbound.offer(message(3), "topic")).isFalse();
+
+        assertThat(outbound.isClosed()).isTrue();
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(outbound.stat().getQueueDepth()).isZero();
+        assertThat(outbound.stat().getDropped()).isEqualTo(4);
+        assertThat(outbound.offer(message(4), "topic")).isFalse();
+        assertThat(drain()).isEmpty();
+    }
+
+    @Test
+    void singleOversizedMessageIsStillSent() {
+        OutboundSession outbound = outbound(OverflowPolicy.DISCONNECT);
+
+        TextMessage large = new TextMessage("x".repeat(BUFFER_SIZE_LIMIT * 2));
+        assertThat(outbound.offer(large, null)).isTrue();
+
+        assertThat(outbound.isClosed()).isFalse();
+        assertThat(drain()).containsExactly(large);
+    }
+
+    @Test
+    void pingsAreMergedUnderEveryPolicy() {
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            tasks.clear();
+            written.clear();
+            OutboundSession outbound = outbound(policy);
+
+            outbound.ping();
+            outbound.offer(message(0), null);
+            outbound.ping();
+            outbound.ping();
+
+            assertThat(outbound.stat().getQueueDepth()).as(policy.name()).isEqualTo(2);
+            List<WebSocketMessage<?>> sent = drain();
+            assertThat(sent).as(policy.name()).hasSize(2);
+            assertThat(sent.get(0)).as(policy.name()).isInstanceOf(PingMessage.class);
+            assertThat(sent.get(1)).as(policy.name()).isEqualTo(message(0));
+        }
+    }
+
+    @Test
+    void sendTimeLimitClosesStalledSession() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(session).sendMessage(any());
+        OutboundSession outbound = new OutboundSession(session, task -> new Thread(task).start(), 50,
+                BUFFER_SIZE_LIMIT, OverflowPolicy.DROP_OLDEST, metrics);
+
+        assertThat(outbound.offer(message(0), null)).isTrue();
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(outbound.offer(message(1), null)).isTrue();
+        Thread.sleep(100);
+        assertThat(outbound.stat().getSendTime()).isGreaterThanOrEqualTo(50);
+
+        assertThat(outbound.offer(message(2), null)).isFalse();
+        assertThat(outbound.isClosed()).isTrue();
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        release.countDown();
+        //关闭后发送线程不再发送排队的消息
+        verify(session, timeout(1000)).sendMessage(message(0));
+        verify(session, never()).sendMessage(message(1));
+    }
+
+    private OutboundSession outbound(OverflowPolicy policy) {
+        return new OutboundSession(session, tasks::add, 1000, BUFFER_SIZE_LIMIT, policy, metrics);
+    }
+
+    /**
+     * 执行全部发送任务, 返回按顺序发送的消息
+     */
+    private List<WebSocketMessage<?>> drain() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+        return written;
+    }
+
+    /**
+     * 固定 10 字节的消息
+     */
+    private static TextMessage message(int i) {
+        return new TextMessage(String.format("message-%02d", i));
+    }
+}
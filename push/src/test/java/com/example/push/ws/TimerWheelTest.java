@@ -0,0 +1,81 @@
+package com.example.push.ws;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTest {
+
+    /**
+     * 10ms 一个 tick, 8 个槽, 一圈 80ms
+     */
+    private final TimerWheel wheel = new TimerWheel("test-wheel-", 10, 8);
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    void runsAfterDelay() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        AtomicLong ranAt = new AtomicLong();
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(() -> {
+            ranAt.set(System.currentTimeMillis());
+            latch.countDown();
+        }, 100);
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(ranAt.get() - start).isGreaterThanOrEqualTo(90);
+    }
+
+    @Test
+    void runsDelayLongerThanOneRound() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        AtomicLong ranAt = new AtomicLong();
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(() -> {
+            ranAt.set(System.currentTimeMillis());
+            latch.countDown();
+        }, 250);
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(ranAt.get() - start).isGreaterThanOrEqualTo(240);
+    }
+
+    @Test
+    void cancelledTaskDoesNotRun() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, 50);
+        timeout.cancel();
+
+        Thread.sleep(200);
+        assertThat(runs.get()).isZero();
+    }
+
+    @Test
+    void failingTaskDoesNotStopWheel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(() -> {
+            throw new IllegalStateException("test");
+        }, 20);
+        wheel.schedule(latch::countDown, 60);
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void expiredDelayRunsOnNextTick() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, -100);
+
+        assertThat(latch.await(200, TimeUnit.MILLISECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.push.ws;
+
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONObject;
+import com.example.push.config.PushProperties;
+import com.example.push.handler.BaseWebSocketHandler;
+import com.example.push.ws.impl.CborFrameSupport;
+import com.example.push.ws.impl.JacksonFrameCodecImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebSocketFactoryTest {
+
+    private final BaseWebSocketHandler exact = mock(BaseWebSocketHandler.class);
+
+    private final BaseWebSocketHandler depth = mock(BaseWebSocketHandler.class);
+
+    private final BaseWebSocketHandler market = mock(BaseWebSocketHandler.class);
+
+    private final WebSocketSessionStoreService store = mock(WebSocketSessionStoreService.class);
+
+    private final FrameLimiter frameLimiter = mock(FrameLimiter.class);
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    private WebSocketFactory factory;
+
+    private String sessionId;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, BaseWebSocketHandler> handlers = new LinkedHashMap<>();
+        handlers.put("test_SUB", exact);
+        handlers.put("market.*.depth", depth);
+        handlers.put("market.**", market);
+        factory = new WebSocketFactory(handlers, new JacksonFrameCodecImpl(new CborFrameSupport(new PushProperties())),
+                store, frameLimiter, new PushMetrics(new SimpleMeterRegistry()));
+        factory.init();
+        when(frameLimiter.allow(any())).thenReturn(true);
+        when(frameLimiter.allowTopic(anyInt())).thenReturn(true);
+        sessionId = SessionIdInterceptor.assign(attributes);
+        when(session.getAttributes()).thenReturn(attributes);
+    }
+
+    @Test
+    void exactRouteIsCaseInsensitive() {
+        WebSocketFactory.Route route = factory.route("TEST_sub");
+
+        assertThat(route.getHandler()).isSameAs(exact);
+        assertThat(route.getTopic()).isEqualTo("test_SUB");
+    }
+
+    @Test
+    void singleWildcardMatchesOneSegment() {
+        WebSocketFactory.Route route = factory.route("Market.BTC.Depth");
+
+        assertThat(route.getHandler()).isSameAs(depth);
+        assertThat(route.getTopic()).isEqualTo("market.btc.depth");
+    }
+
+    @Test
+    void trailingDoubleWildcardMatchesRemainingSegments() {
+        assertThat(factory.route("market.btc.trade").getHandler()).isSameAs(market);
+        assertThat(factory.route("market.btc.depth.step0").getHandler()).isSameAs(market);
+        assertThat(factory.route("market").getHandler()).isSameAs(market);
+    }
+
+    @Test
+    void unknownTopicHasNoRoute() {
+        assertThat(factory.route("kline.btc")).isNull();
+        assertThat(factory.route("test_sub.extra")).isNull();
+    }
+
+    @Test
+    void batchedSubscribeRoutesEveryTopic() {
+        factory.process(session, new TextMessage("{\"sub\":[\"test_sub\",\"market.btc.depth\",\"market.eth.trade\",\"nope\"],"
+                + "\"data\":{\"symbol\":\"btc\"}}"));
+
+        JSONObject data = new JSONObject().set("symbol", "btc");
+        verify(exact).connect(sessionId, "test_SUB", data);
+        verify(depth).connect(sessionId, "market.btc.depth", data);
+        verify(market).connect(sessionId, "market.eth.trade", data);
+    }
+
+    @Test
+    void unsubscribeAndCloseNotifySubscribedHandlersOnly() {
+        factory.process(session, new TextMessage("{\"sub\":[\"test_sub\",\"market.btc.depth\"]}"));
+        factory.process(session, new TextMessage("{\"unSub\":\"MARKET.BTC.DEPTH\"}"));
+
+        verify(depth).disconnect(sessionId, "market.btc.depth");
+
+        factory.close(sessionId);
+
+        verify(exact).disconnect(sessionId);
+        verify(depth, never()).disconnect(sessionId);
+        verify(market, never()).disconnect(eq(sessionId));
+    }
+
+    @Test
+    void topicLimitRejectsNewTopics() {
+        when(frameLimiter.allowTopic(anyInt())).thenReturn(false);
+
+        factory.process(session, new TextMessage("{\"sub\":\"test_sub\"}"));
+
+        verify(exact, never()).connect(any(), any(), any());
+        verify(store).sendMessage(eq(sessionId), any(JSON.class));
+    }
+}